@@ -0,0 +1,65 @@
+package com.secrethitler.benchmark;
+
+import com.secrethitler.models.Game;
+import com.secrethitler.models.Player;
+import com.secrethitler.websocket.BroadcastGroup;
+import com.secrethitler.websocket.WebSocketManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.web.socket.adapter.standard.StandardWebSocketSession;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The loops every game event runs over a game's connections in GameWebSocketHandler:
+ * a broadcast to every session, and each player's own game_state. Run with -prof gc:
+ * neither should allocate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BroadcastFanoutBenchmark {
+
+    @Param({"5", "10"})
+    public int players;
+
+    private final WebSocketManager connectionManager = new WebSocketManager();
+    private Game game;
+    private String gameId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        game = GameFixtures.newGame(players, GameFixtures.LATE);
+        gameId = game.getGameId();
+        for (Player player : game.getPlayers()) {
+            connectionManager.connect(new StandardWebSocketSession(null, null, null, null), gameId, player.getName());
+        }
+    }
+
+    /** broadcastToGame */
+    @Benchmark
+    public void broadcast(Blackhole blackhole) {
+        for (BroadcastGroup.Member member : connectionManager.getMembers(gameId)) {
+            blackhole.consume(member.session());
+        }
+    }
+
+    /** broadcastGameState: only players get a view, each their own */
+    @Benchmark
+    public void broadcastGameState(Blackhole blackhole) {
+        for (BroadcastGroup.Member member : connectionManager.getMembers(gameId)) {
+            if (game.getPlayerByName(member.playerName()) != null) {
+                blackhole.consume(member.session());
+            }
+        }
+    }
+
+    /** A player whose reply goes only to them, e.g. the chancellor's hand. */
+    @Benchmark
+    public Object getSession() {
+        return connectionManager.getSession(gameId, game.getPlayers().get(players - 1).getName());
+    }
+}
@@ -0,0 +1,55 @@
+package com.secrethitler.benchmark;
+
+import com.secrethitler.models.CompactGameState;
+import com.secrethitler.models.Game;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CompactGameState encoding: re-encoding a live game into an existing instance and
+ * copying an encoding should not allocate; decoding builds a full Game for comparison.
+ * Run with -prof gc to see the allocation rate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompactStateBenchmark {
+
+    @Param({"5", "10"})
+    public int players;
+
+    @Param({GameFixtures.EARLY, GameFixtures.LATE})
+    public String stage;
+
+    private Game game;
+    private CompactGameState encoded;
+    private CompactGameState scratch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        game = GameFixtures.newGame(players, stage);
+        encoded = CompactGameState.from(game);
+        scratch = CompactGameState.from(game);
+    }
+
+    @Benchmark
+    public CompactGameState encodeInto() {
+        scratch.copyFrom(game);
+        return scratch;
+    }
+
+    @Benchmark
+    public CompactGameState copy() {
+        scratch.copyFrom(encoded);
+        return scratch;
+    }
+
+    @Benchmark
+    public Game decode() {
+        return encoded.toGame();
+    }
+}
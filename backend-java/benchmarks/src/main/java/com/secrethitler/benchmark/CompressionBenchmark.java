@@ -0,0 +1,161 @@
+package com.secrethitler.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secrethitler.models.ChatMessage;
+import com.secrethitler.models.Game;
+import com.secrethitler.models.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Cost and ratio of permessage-deflate for the frames a client receives.
+ *
+ * The deflater is set up like Tomcat's PerMessageDeflate: raw deflate at the default
+ * level, each message ended with a sync flush whose 4-byte tail is dropped. "shared"
+ * keeps the window across frames (context takeover, what browsers negotiate); "per_frame"
+ * resets it before every frame, as with no_context_takeover.
+ *
+ * Sizes over a realistic frame sequence are printed by running the class directly:
+ * java -cp target/benchmarks.jar com.secrethitler.benchmark.CompressionBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompressionBenchmark {
+    private static final String[] MESSAGES = {"vote_cast", "chat_message", "election_resolved", "game_state"};
+    private static final int ROUNDS = 32;
+
+    @Param({"5", "10"})
+    public int players;
+
+    @Param({"vote_cast", "chat_message", "election_resolved", "game_state"})
+    public String message;
+
+    @Param({"shared", "per_frame"})
+    public String window;
+
+    private List<byte[]> frames;
+    private Deflater deflater;
+    private final byte[] out = new byte[64 * 1024];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        frames = new ArrayList<>();
+        for (Frame frame : rounds(players)) {
+            if (frame.message().equals(message)) {
+                frames.add(frame.bytes());
+            }
+        }
+        deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        for (byte[] frame : frames) {
+            deflate(deflater, frame, out);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        deflater.end();
+    }
+
+    @Benchmark
+    public int deflate() {
+        if ("per_frame".equals(window)) {
+            deflater.reset();
+        }
+        byte[] frame = frames.get(next);
+        next = (next + 1) % frames.size();
+        return deflate(deflater, frame, out);
+    }
+
+    /** Compressed length of one message, as permessage-deflate puts it on the wire. */
+    static int deflate(Deflater deflater, byte[] frame, byte[] out) {
+        deflater.setInput(frame);
+        int length = 0;
+        int written;
+        do {
+            written = deflater.deflate(out, 0, out.length, Deflater.SYNC_FLUSH);
+            length += written;
+        } while (written == out.length);
+        return length - 4;
+    }
+
+    record Frame(String message, byte[] bytes) {
+    }
+
+    /**
+     * The frames one player receives over ROUNDS voting rounds of a late game, in
+     * order: a vote_cast per alive player, election_resolved, the new game_state and
+     * a chat message. Each round changes the votes, the tracker and the chat.
+     */
+    static List<Frame> rounds(int players) throws JsonProcessingException {
+        ObjectMapper mapper = new ObjectMapper();
+        Game game = GameFixtures.newGame(players, GameFixtures.LATE);
+        List<Frame> frames = new ArrayList<>();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (Player player : game.getAlivePlayers()) {
+                boolean vote = (player.getName().hashCode() + round) % 3 != 0;
+                player.setVote(vote);
+                game.getVotes().put(player.getName(), vote);
+                Map<String, Object> payload = new LinkedHashMap<>();
+                payload.put("player_name", player.getName());
+                payload.put("vote", vote);
+                frames.add(encode(mapper, "vote_cast", Map.of("type", "vote_cast", "payload", payload)));
+            }
+            game.setElectionTracker(round % 3);
+            game.touch();
+            for (String message : new String[]{"election_resolved", "game_state"}) {
+                frames.add(encode(mapper, message, WireFormatBenchmark.frame(game, message)));
+            }
+            Player sender = game.getPlayers().get(round % players);
+            game.getChatLog().add(new ChatMessage(sender.getName(),
+                    "Round " + round + ": I think " + game.getPlayers().get((round + 2) % players).getName() + " is lying",
+                    ChatMessage.MessageType.PLAYER_MESSAGE));
+            frames.add(encode(mapper, "chat_message", WireFormatBenchmark.frame(game, "chat_message")));
+        }
+        return frames;
+    }
+
+    private static Frame encode(ObjectMapper mapper, String message, Object frame) throws JsonProcessingException {
+        return new Frame(message, mapper.writeValueAsBytes(frame));
+    }
+
+    public static void main(String[] args) throws JsonProcessingException {
+        byte[] out = new byte[64 * 1024];
+        System.out.printf("%-18s %7s %8s %8s %7s %10s %7s%n",
+                "message", "players", "json B", "shared B", "ratio", "per-frame B", "ratio");
+        for (int players : new int[]{5, 10}) {
+            Map<String, long[]> totals = new LinkedHashMap<>();
+            for (String message : MESSAGES) {
+                totals.put(message, new long[4]);
+            }
+            Deflater shared = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            Deflater perFrame = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            for (Frame frame : rounds(players)) {
+                perFrame.reset();
+                long[] total = totals.get(frame.message());
+                total[0]++;
+                total[1] += frame.bytes().length;
+                total[2] += deflate(shared, frame.bytes(), out);
+                total[3] += deflate(perFrame, frame.bytes(), out);
+            }
+            shared.end();
+            perFrame.end();
+            for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+                long[] t = entry.getValue();
+                System.out.printf("%-18s %7d %8d %8d %6.0f%% %10d %6.0f%%%n", entry.getKey(), players,
+                        t[1] / t[0], t[2] / t[0], 100.0 * t[2] / t[1], t[3] / t[0], 100.0 * t[3] / t[1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.secrethitler.benchmark;
+
+import com.secrethitler.engine.GameEngine;
+import com.secrethitler.models.Game;
+import com.secrethitler.models.Policy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Draw pile operations: drawing the president's hand (with and without
+ * reshuffling the discard pile), the policy peek and a top-deck enactment.
+ * The piles are restored before every invocation, outside the measurement.
+ * Run with -prof gc for the allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DeckBenchmark {
+
+    private Game game;
+    private List<Policy> fullDeck;
+    private List<Policy> shortDeck;
+    private List<Policy> discard;
+    private final List<Policy> noCards = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        game = GameFixtures.newGame(7, GameFixtures.EARLY);
+        fullDeck = new ArrayList<>(game.getPolicyDeck());
+        // Two cards left and the rest in the discard pile, so the next draw reshuffles
+        shortDeck = new ArrayList<>(fullDeck.subList(0, 2));
+        discard = new ArrayList<>(fullDeck.subList(2, 12));
+    }
+
+    private void restore(List<Policy> deck, List<Policy> discardPile) {
+        game.getPolicyDeck().clear();
+        game.getPolicyDeck().addAll(deck);
+        game.getDiscardPile().clear();
+        game.getDiscardPile().addAll(discardPile);
+        game.getPresidentHand().clear();
+        game.setLiberalPolicies(0);
+        game.setFascistPolicies(0);
+    }
+
+    @State(Scope.Thread)
+    public static class FullDeck {
+        @Setup(Level.Invocation)
+        public void setUp(DeckBenchmark b) {
+            b.restore(b.fullDeck, b.noCards);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ShortDeck {
+        @Setup(Level.Invocation)
+        public void setUp(DeckBenchmark b) {
+            b.restore(b.shortDeck, b.discard);
+        }
+    }
+
+    @Benchmark
+    public boolean drawPoliciesForPresident(FullDeck state) {
+        return GameEngine.drawPoliciesForPresident(game);
+    }
+
+    @Benchmark
+    public boolean drawPoliciesWithReshuffle(ShortDeck state) {
+        return GameEngine.drawPoliciesForPresident(game);
+    }
+
+    @Benchmark
+    public List<String> getPolicyPeek(FullDeck state) {
+        return GameEngine.getPolicyPeek(game);
+    }
+
+    @Benchmark
+    public boolean enactTopPolicy(FullDeck state) {
+        return GameEngine.enactTopPolicy(game);
+    }
+}
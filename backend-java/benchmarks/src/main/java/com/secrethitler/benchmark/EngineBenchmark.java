@@ -0,0 +1,142 @@
+package com.secrethitler.benchmark;
+
+import com.secrethitler.engine.GameEngine;
+import com.secrethitler.models.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * State transitions on the GameEngine hot path.
+ *
+ * Transitions that consume the deck or advance the president are restored
+ * in place before every invocation, so each measurement starts from the
+ * same position of an early or late game.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EngineBenchmark {
+
+    @Param({"5", "10"})
+    public int players;
+
+    @Param({GameFixtures.EARLY, GameFixtures.LATE})
+    public String stage;
+
+    private Game game;
+    private String president;
+    private String chancellor;
+    private int presidentIndex;
+    private int electionTracker;
+    private int liberalPolicies;
+    private int fascistPolicies;
+    private String lastChancellor;
+    private String lastPresident;
+    private List<Policy> deck;
+    private List<Policy> discard;
+    private List<Policy> chancellorCards;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        game = GameFixtures.newGame(players, stage);
+        president = game.getCurrentPresident().getName();
+        chancellor = GameFixtures.chancellorCandidate(game);
+        presidentIndex = game.getCurrentPresidentIndex();
+        electionTracker = game.getElectionTracker();
+        liberalPolicies = game.getLiberalPolicies();
+        fascistPolicies = game.getFascistPolicies();
+        lastChancellor = game.getLastChancellorName();
+        lastPresident = game.getLastPresidentName();
+        deck = new ArrayList<>(game.getPolicyDeck());
+        discard = new ArrayList<>(game.getDiscardPile());
+        chancellorCards = List.of(Policy.LIBERAL, Policy.FASCIST);
+    }
+
+    private void restoreBoard() {
+        game.setCurrentPresidentIndex(presidentIndex);
+        game.setElectionTracker(electionTracker);
+        game.setLiberalPolicies(liberalPolicies);
+        game.setFascistPolicies(fascistPolicies);
+        game.setLastChancellorName(lastChancellor);
+        game.setLastPresidentName(lastPresident);
+        game.setExecutiveActionAvailable(null);
+        game.setWinner(null);
+        game.getPolicyDeck().clear();
+        game.getPolicyDeck().addAll(deck);
+        game.getDiscardPile().clear();
+        game.getDiscardPile().addAll(discard);
+    }
+
+    @Benchmark
+    public boolean nominateChancellor() {
+        GameFixtures.resetToElection(game);
+        return GameEngine.nominateChancellor(game, president, chancellor);
+    }
+
+    /** One full round of voting as GameWebSocketHandler.handleCastVote performs it. */
+    @Benchmark
+    public void castVoteAndCheckAllVotesCast(Blackhole bh) {
+        GameFixtures.resetToElection(game);
+        game.setNominatedChancellor(chancellor);
+        game.setCurrentPhase(Phase.VOTING);
+        List<Player> all = game.getPlayers();
+        for (int i = 0; i < all.size(); i++) {
+            Player p = all.get(i);
+            if (p.isAlive()) {
+                bh.consume(GameEngine.castVote(game, p.getName(), (i & 1) == 0));
+                bh.consume(GameEngine.checkAllVotesCast(game));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class PassedVote {
+        @Setup(Level.Invocation)
+        public void setUp(EngineBenchmark b) {
+            b.restoreBoard();
+            GameFixtures.resetToFullVote(b.game, b.chancellor, true);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class FailedVote {
+        @Setup(Level.Invocation)
+        public void setUp(EngineBenchmark b) {
+            b.restoreBoard();
+            GameFixtures.resetToFullVote(b.game, b.chancellor, false);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ChancellorHand {
+        @Setup(Level.Invocation)
+        public void setUp(EngineBenchmark b) {
+            b.restoreBoard();
+            GameFixtures.resetToChancellorHand(b.game, b.chancellor, b.chancellorCards,
+                    b.liberalPolicies, b.fascistPolicies);
+        }
+    }
+
+    @Benchmark
+    public boolean resolveElectionPassed(PassedVote state) {
+        return GameEngine.resolveElection(game);
+    }
+
+    @Benchmark
+    public boolean resolveElectionFailed(FailedVote state) {
+        return GameEngine.resolveElection(game);
+    }
+
+    @Benchmark
+    public boolean chancellorEnactPolicy(ChancellorHand state) {
+        // Index 1 is the fascist card, which also runs the executive-action checks
+        return GameEngine.chancellorEnactPolicy(game, chancellor, 1);
+    }
+}
@@ -0,0 +1,126 @@
+package com.secrethitler.benchmark;
+
+import com.secrethitler.engine.GameEngine;
+import com.secrethitler.models.Game;
+import com.secrethitler.service.GameCommandExecutor;
+import com.secrethitler.simulation.GameSimulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load comparison of the platform-thread and virtual-thread execution models.
+ *
+ * Every bot seat behaves like a blocking @Async bot turn: it sleeps for the
+ * human-like delay, then runs its move on the game's GameCommandExecutor queue
+ * and waits for it. In
+ * platform mode the seats share a fixed pool (Spring's default @Async pool has 8
+ * threads, Tomcat's has 200) and the command queues drain on a core-sized
+ * ForkJoinPool. In virtual mode both use virtual threads, as with
+ * spring.threads.virtual.enabled=true.
+ *
+ * Usage: java -cp target/benchmarks.jar com.secrethitler.benchmark.ExecutionModelComparison
+ *        [--seats 10000] [--steps 5] [--delay-ms 100] [--platform-threads 200]
+ */
+public class ExecutionModelComparison {
+
+    public static void main(String[] args) throws Exception {
+        int seats = 10_000;
+        int steps = 5;
+        int delayMs = 100;
+        int platformThreads = 200;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--seats" -> seats = Integer.parseInt(args[i + 1]);
+                case "--steps" -> steps = Integer.parseInt(args[i + 1]);
+                case "--delay-ms" -> delayMs = Integer.parseInt(args[i + 1]);
+                case "--platform-threads" -> platformThreads = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        System.out.printf("%,d bot seats x %d moves, %d ms think time each%n%n", seats, steps, delayMs);
+        System.out.printf("%-22s %10s %12s %10s %10s %10s%n",
+                "mode", "wall (s)", "moves/s", "p50 (ms)", "p99 (ms)", "threads");
+
+        // Short warm-up so neither mode pays for class loading and JIT
+        run("warmup", Executors.newVirtualThreadPerTaskExecutor(), Executors.newVirtualThreadPerTaskExecutor(),
+                Math.min(seats, 1_000), 2, 1, false);
+
+        run("platform (" + platformThreads + ")", Executors.newFixedThreadPool(platformThreads),
+                new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+                        ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true),
+                seats, steps, delayMs, true);
+        run("virtual", Executors.newVirtualThreadPerTaskExecutor(), Executors.newVirtualThreadPerTaskExecutor(),
+                seats, steps, delayMs, true);
+    }
+
+    private static void run(String mode, ExecutorService botPool, ExecutorService commandPool,
+                            int seats, int steps, int delayMs, boolean report) throws InterruptedException {
+        GameCommandExecutor executor = new GameCommandExecutor(commandPool);
+        int seatsPerGame = 10;
+        List<Game> games = new ArrayList<>();
+        for (int g = 0; g * seatsPerGame < seats; g++) {
+            Game game = GameEngine.createGame("LOAD-" + g);
+            for (int p = 1; p <= seatsPerGame; p++) {
+                GameEngine.addPlayer(game, "Bot " + p, true);
+            }
+            GameEngine.startGame(game);
+            games.add(game);
+        }
+
+        long[] lateness = new long[seats * steps];
+        AtomicInteger samples = new AtomicInteger();
+        int peakThreadsBefore = Thread.activeCount();
+        CountDownLatch done = new CountDownLatch(seats);
+        long start = System.nanoTime();
+
+        for (int s = 0; s < seats; s++) {
+            Game game = games.get(s / seatsPerGame);
+            int totalSteps = steps;
+            botPool.execute(() -> {
+                try {
+                    for (int k = 0; k < totalSteps; k++) {
+                        long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+                        Thread.sleep(delayMs);
+                        executor.submit(game.getGameId(), () -> GameSimulator.step(game)).join();
+                        lateness[samples.getAndIncrement()] = System.nanoTime() - due;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        int threads = Math.max(Thread.activeCount(), peakThreadsBefore);
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        botPool.shutdown();
+        commandPool.shutdown();
+        if (!report) {
+            return;
+        }
+
+        long[] sorted = Arrays.copyOf(lateness, samples.get());
+        Arrays.sort(sorted);
+        System.out.printf("%-22s %10.2f %,12.0f %10.1f %10.1f %10d%n", mode,
+                elapsed / 1e9, sorted.length / (elapsed / 1e9),
+                percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6, threads);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+}
@@ -0,0 +1,127 @@
+package com.secrethitler.benchmark;
+
+import com.secrethitler.engine.GameEngine;
+import com.secrethitler.models.*;
+
+import java.util.List;
+
+/**
+ * Builds games in representative states for the benchmarks.
+ * "early" is a freshly started game; "late" has seven policies on the board,
+ * a full chat history, a thinner deck and (for 7+ players) an executed player.
+ * Games are created from a fixed seed, so every fork also gets the same deck order.
+ */
+final class GameFixtures {
+    static final String EARLY = "early";
+    static final String LATE = "late";
+    static final long SEED = 20_240_101L;
+
+    private GameFixtures() {
+    }
+
+    static Game newGame(int players, String stage) {
+        Game game = GameEngine.createGame("BENCH", SEED);
+        game.setHostName("Player 1");
+        for (int i = 1; i <= players; i++) {
+            GameEngine.addPlayer(game, "Player " + i);
+        }
+        GameEngine.startGame(game);
+        game.setCurrentPresidentIndex(0);
+
+        // Fixed seating so every fork measures the same roles: the president (seat 0)
+        // and the nominee (seat 1) are liberal, Hitler sits in seat 2
+        long fascists = game.getPlayers().stream().filter(p -> p.getRole() == Role.FASCIST).count();
+        for (int i = 0; i < players; i++) {
+            Role role = Role.LIBERAL;
+            if (i == 2) {
+                role = Role.HITLER;
+            } else if (i > 2 && i <= 2 + fascists) {
+                role = Role.FASCIST;
+            }
+            game.getPlayers().get(i).setRole(role);
+        }
+
+        if (LATE.equals(stage)) {
+            game.setLiberalPolicies(3);
+            game.setFascistPolicies(4);
+            game.setElectionTracker(1);
+
+            // 17 cards minus 7 enacted, split between deck and discard pile
+            PolicyDeck deck = game.getPolicyDeck();
+            while (deck.size() > 10) {
+                deck.remove(deck.size() - 1);
+            }
+            while (deck.size() > 5) {
+                game.getDiscardPile().add(deck.remove(deck.size() - 1));
+            }
+
+            if (players >= 7) {
+                Player victim = game.getPlayers().get(players - 1);
+                game.setAlive(victim, false);
+                victim.setExecuted(true);
+                game.touch();
+            }
+
+            for (int i = 0; i < 100; i++) {
+                Player sender = game.getPlayers().get(i % players);
+                game.getChatLog().add(new ChatMessage(sender.getName(),
+                        "Message number " + i + " about who to trust next round",
+                        ChatMessage.MessageType.PLAYER_MESSAGE));
+            }
+        } else {
+            game.getChatLog().add(new ChatMessage("System", "Game started",
+                    ChatMessage.MessageType.SYSTEM_MESSAGE));
+        }
+        game.touch();
+        return game;
+    }
+
+    /** A seat the current president may legally nominate. */
+    static String chancellorCandidate(Game game) {
+        Player president = game.getCurrentPresident();
+        for (Player p : game.getAlivePlayers()) {
+            if (p != president && !p.getName().equals(game.getLastChancellorName())) {
+                return p.getName();
+            }
+        }
+        return null;
+    }
+
+    /** Puts the game back into the ELECTION phase for the current president. */
+    static void resetToElection(Game game) {
+        for (Player p : game.getPlayers()) {
+            p.setVote(null);
+            p.setPresident(false);
+            p.setChancellor(false);
+        }
+        game.getVotes().clear();
+        game.setNominatedChancellor(null);
+        game.setCurrentPhase(Phase.ELECTION);
+    }
+
+    /** Moves the game to VOTING with every alive player having voted. */
+    static void resetToFullVote(Game game, String chancellor, boolean ja) {
+        resetToElection(game);
+        game.setNominatedChancellor(chancellor);
+        game.setCurrentPhase(Phase.VOTING);
+        for (Player p : game.getAlivePlayers()) {
+            p.setVote(ja);
+            game.getVotes().put(p.getName(), ja);
+        }
+    }
+
+    /** Moves the game to LEGISLATIVE with the chancellor holding two cards. */
+    static void resetToChancellorHand(Game game, String chancellor, List<Policy> cards,
+                                      int liberalPolicies, int fascistPolicies) {
+        resetToElection(game);
+        game.setNominatedChancellor(chancellor);
+        game.getPlayerByName(chancellor).setChancellor(true);
+        game.setCurrentPhase(Phase.LEGISLATIVE);
+        game.setLiberalPolicies(liberalPolicies);
+        game.setFascistPolicies(fascistPolicies);
+        game.getChancellorHand().clear();
+        game.getChancellorHand().addAll(cards);
+        game.getPresidentHand().clear();
+        game.setWinner(null);
+    }
+}
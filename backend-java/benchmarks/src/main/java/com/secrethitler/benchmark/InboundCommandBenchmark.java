@@ -0,0 +1,50 @@
+package com.secrethitler.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secrethitler.websocket.CommandReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of inbound frames: the typed CommandReader used by GameWebSocketHandler
+ * against reading the same frame into a Map, as the handler used to.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InboundCommandBenchmark {
+
+    @Param({"cast_vote", "executive_action", "chat_message"})
+    public String action;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CommandReader commandReader = new CommandReader(objectMapper);
+
+    private String frame;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        frame = switch (action) {
+            case "cast_vote" -> "{\"action\":\"cast_vote\",\"payload\":{\"vote\":true}}";
+            case "executive_action" ->
+                    "{\"action\":\"executive_action\",\"payload\":{\"action_type\":\"investigate\",\"target\":\"Player3\"}}";
+            default -> "{\"action\":\"chat_message\",\"payload\":{\"message\":\"I am definitely a liberal, trust me\"}}";
+        };
+    }
+
+    @Benchmark
+    public CommandReader.Inbound typed() throws IOException {
+        return commandReader.read(frame);
+    }
+
+    @Benchmark
+    public Map<?, ?> map() throws IOException {
+        return objectMapper.readValue(frame, Map.class);
+    }
+}
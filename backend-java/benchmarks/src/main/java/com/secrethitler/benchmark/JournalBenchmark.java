@@ -0,0 +1,75 @@
+package com.secrethitler.benchmark;
+
+import com.secrethitler.engine.GameEngine;
+import com.secrethitler.journal.GameJournal;
+import com.secrethitler.models.ChatMessage;
+import com.secrethitler.models.Game;
+import com.secrethitler.models.Phase;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of journaling a command: the same engine calls with and without a journal
+ * attached. The journal writes to /dev/null every 1024 commands, standing in for
+ * the writer thread, so the buffer stays small and the write cost is included.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JournalBenchmark {
+    private static final int FLUSH_EVERY = 1024;
+
+    @Param({"false", "true"})
+    public boolean journaled;
+
+    private Game game;
+    private GameJournal journal;
+    private String voter;
+    private ChatMessage chat;
+    private int commands;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        game = GameFixtures.newGame(7, GameFixtures.EARLY);
+        GameFixtures.resetToElection(game);
+        game.setNominatedChancellor(GameFixtures.chancellorCandidate(game));
+        game.setCurrentPhase(Phase.VOTING);
+        voter = game.getPlayers().get(3).getName();
+        chat = new ChatMessage(voter, "I am definitely a liberal", ChatMessage.MessageType.PLAYER_MESSAGE);
+        if (journaled) {
+            journal = new GameJournal(game.getGameId(), Path.of("/dev/null"), j -> { });
+            game.setJournal(journal);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private void flushPeriodically() throws IOException {
+        if (journal != null && ++commands % FLUSH_EVERY == 0) {
+            journal.flush();
+        }
+    }
+
+    @Benchmark
+    public boolean castVote() throws IOException {
+        flushPeriodically();
+        return GameEngine.castVote(game, voter, true);
+    }
+
+    @Benchmark
+    public void addChatMessage() throws IOException {
+        flushPeriodically();
+        GameEngine.addChatMessage(game, chat);
+    }
+}
@@ -0,0 +1,81 @@
+package com.secrethitler.benchmark;
+
+import com.secrethitler.bot.BotAI;
+import com.secrethitler.engine.GameEngine;
+import com.secrethitler.models.Game;
+import com.secrethitler.models.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seat lookups the engine and bots make several times per action. Run with
+ * -prof gc: apart from the bot decision, these should not allocate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PlayerLookupBenchmark {
+
+    @Param({"5", "10"})
+    public int players;
+
+    @Param({GameFixtures.EARLY, GameFixtures.LATE})
+    public String stage;
+
+    private Game game;
+    private String lastSeat;
+    private Player president;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        game = GameFixtures.newGame(players, stage);
+        lastSeat = game.getPlayers().get(players - 1).getName();
+        president = game.getCurrentPresident();
+        GameFixtures.resetToFullVote(game, GameFixtures.chancellorCandidate(game), true);
+        game.touch();
+    }
+
+    @Benchmark
+    public Player getPlayerByName() {
+        return game.getPlayerByName(lastSeat);
+    }
+
+    @Benchmark
+    public Player getCurrentPresident() {
+        return game.getCurrentPresident();
+    }
+
+    @Benchmark
+    public int iterateAlivePlayers() {
+        int votes = 0;
+        List<Player> alive = game.getAlivePlayers();
+        for (int i = 0; i < alive.size(); i++) {
+            if (Boolean.TRUE.equals(alive.get(i).getVote())) {
+                votes++;
+            }
+        }
+        return votes;
+    }
+
+    @Benchmark
+    public boolean checkAllVotesCast() {
+        return GameEngine.checkAllVotesCast(game);
+    }
+
+    /** First lookup after a mutation, as every action does. */
+    @Benchmark
+    public Player getCurrentPresidentAfterMutation() {
+        game.touch();
+        return game.getCurrentPresident();
+    }
+
+    @Benchmark
+    public String decideChancellorNomination() {
+        return BotAI.decideChancellorNomination(game, president);
+    }
+}
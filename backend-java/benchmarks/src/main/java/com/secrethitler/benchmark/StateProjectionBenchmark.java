@@ -0,0 +1,120 @@
+package com.secrethitler.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secrethitler.models.Game;
+import com.secrethitler.models.GameStateView;
+import com.secrethitler.models.Player;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-viewer state projection (Game.toDict) and the Jackson encoding done by
+ * GameWebSocketHandler.sendMessage, alone and combined as one broadcastGameState,
+ * against writing the same state through GameStateView.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StateProjectionBenchmark {
+
+    @Param({"5", "10"})
+    public int players;
+
+    @Param({GameFixtures.EARLY, GameFixtures.LATE})
+    public String stage;
+
+    // Same configuration as the handler's ObjectMapper
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Game game;
+    private String liberalViewer;
+    private String fascistViewer;
+    private Map<String, Object> gameState;
+    private Map<String, Object> voteCast;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        game = GameFixtures.newGame(players, stage);
+        liberalViewer = game.getPlayers().get(0).getName();
+        fascistViewer = game.getPlayers().get(3).getName();
+        gameState = game.toDict(liberalViewer);
+        voteCast = Map.of("player_name", liberalViewer, "vote", true);
+    }
+
+    @Benchmark
+    public Map<String, Object> toDictLiberal() {
+        return game.toDict(liberalViewer);
+    }
+
+    @Benchmark
+    public Map<String, Object> toDictFascist() {
+        return game.toDict(fascistViewer);
+    }
+
+    @Benchmark
+    public Map<String, Object> toDictPublic() {
+        return game.toDict(null);
+    }
+
+    @Benchmark
+    public String serializeGameState() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(Map.of("type", "game_state", "payload", gameState));
+    }
+
+    @Benchmark
+    public String serializeGameStateView() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(Map.of("type", "game_state", "payload",
+                new GameStateView(game, liberalViewer)));
+    }
+
+    @Benchmark
+    public String serializeVoteCast() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(Map.of("type", "vote_cast", "payload", voteCast));
+    }
+
+    /** Projection for every seat right after a mutation, as broadcastGameState sees it. */
+    @Benchmark
+    public void toDictAllViewersAfterMutation(Blackhole bh) {
+        game.touch();
+        for (Player player : game.getPlayers()) {
+            bh.consume(game.toDict(player.getName()));
+        }
+    }
+
+    /** The projection and encoding work of one broadcastGameState call. */
+    @Benchmark
+    public void broadcastGameState(Blackhole bh) throws JsonProcessingException {
+        for (Player player : game.getPlayers()) {
+            Map<String, Object> state = game.toDict(player.getName());
+            bh.consume(objectMapper.writeValueAsString(Map.of("type", "game_state", "payload", state)));
+        }
+    }
+
+    @Benchmark
+    public void broadcastGameStateView(Blackhole bh) throws JsonProcessingException {
+        for (Player player : game.getPlayers()) {
+            bh.consume(objectMapper.writeValueAsString(Map.of("type", "game_state", "payload",
+                    new GameStateView(game, player.getName()))));
+        }
+    }
+
+    /** broadcastGameState right after a mutation, when the shared projection has to be rebuilt. */
+    @Benchmark
+    public void broadcastGameStateAfterMutation(Blackhole bh) throws JsonProcessingException {
+        game.touch();
+        broadcastGameState(bh);
+    }
+
+    @Benchmark
+    public void broadcastGameStateViewAfterMutation(Blackhole bh) throws JsonProcessingException {
+        game.touch();
+        broadcastGameStateView(bh);
+    }
+}
@@ -0,0 +1,95 @@
+package com.secrethitler.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.secrethitler.models.ChatLog;
+import com.secrethitler.models.Game;
+import com.secrethitler.models.GameStateView;
+import com.secrethitler.models.Phase;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding cost of the JSON text frames against the CBOR frames of the
+ * secret-hitler.cbor subprotocol, for the most frequent broadcasts.
+ *
+ * Frame sizes are printed by running the class directly:
+ * java -cp target/benchmarks.jar com.secrethitler.benchmark.WireFormatBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WireFormatBenchmark {
+
+    @Param({"5", "10"})
+    public int players;
+
+    @Param({"game_state", "chat_message", "election_resolved"})
+    public String message;
+
+    // Same configuration as the handler's mappers
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+
+    private Map<String, Object> frame;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        frame = frame(GameFixtures.newGame(players, GameFixtures.LATE), message);
+    }
+
+    /** The {type, payload} map GameWebSocketHandler encodes for this message. */
+    static Map<String, Object> frame(Game game, String message) {
+        Object payload = switch (message) {
+            case "game_state" -> new GameStateView(game, game.getPlayers().get(0).getName());
+            case "chat_message" -> {
+                ChatLog chatLog = game.getChatLog();
+                yield chatLog.page(-1, 1).get(0);
+            }
+            default -> {
+                Map<String, Boolean> votes = new LinkedHashMap<>();
+                for (int i = 0; i < game.getPlayers().size(); i++) {
+                    votes.put(game.getPlayers().get(i).getName(), i % 3 != 0);
+                }
+                yield Map.of(
+                        "votes", votes,
+                        "passed", true,
+                        "election_tracker", game.getElectionTracker(),
+                        "phase", Phase.LEGISLATIVE.getValue());
+            }
+        };
+        return Map.of("type", message, "payload", payload);
+    }
+
+    @Benchmark
+    public String json() throws JsonProcessingException {
+        return jsonMapper.writeValueAsString(frame);
+    }
+
+    @Benchmark
+    public byte[] cbor() throws JsonProcessingException {
+        return cborMapper.writeValueAsBytes(frame);
+    }
+
+    public static void main(String[] args) throws JsonProcessingException {
+        ObjectMapper jsonMapper = new ObjectMapper();
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        System.out.printf("%-18s %7s %10s %10s %7s%n", "message", "players", "json (B)", "cbor (B)", "ratio");
+        for (String message : new String[]{"game_state", "chat_message", "election_resolved"}) {
+            for (int players : new int[]{5, 10}) {
+                Map<String, Object> frame = frame(GameFixtures.newGame(players, GameFixtures.LATE), message);
+                int json = jsonMapper.writeValueAsString(frame).getBytes(StandardCharsets.UTF_8).length;
+                int cbor = cborMapper.writeValueAsBytes(frame).length;
+                System.out.printf("%-18s %7d %10d %10d %6.0f%%%n", message, players, json, cbor, 100.0 * cbor / json);
+            }
+        }
+    }
+}
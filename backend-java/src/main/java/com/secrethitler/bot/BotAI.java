@@ -2,35 +2,27 @@ package com.secrethitler.bot;
 
 import com.secrethitler.models.*;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class BotAI {
-    private static final Random random = new Random();
 
     public static boolean decideVote(Game game, Player bot) {
         // Simple strategy: vote yes if bot is fascist/hitler, random otherwise
         if (bot.getRole() == Role.FASCIST || bot.getRole() == Role.HITLER) {
             // Fascists generally vote yes to help their team
-            return random.nextDouble() > 0.2; // 80% chance to vote yes
+            return game.getBotRandom().nextDouble() > 0.2; // 80% chance to vote yes
         } else {
             // Liberals vote more randomly
-            return random.nextBoolean();
+            return game.getBotRandom().nextBoolean();
         }
     }
 
     public static String decideChancellorNomination(Game game, Player bot) {
-        List<Player> alivePlayers = game.getAlivePlayers();
-        List<Player> candidates = alivePlayers.stream()
-                .filter(p -> !p.getName().equals(bot.getName())) // Can't nominate self
-                .filter(p -> !p.getName().equals(game.getLastChancellorName()) || alivePlayers.size() <= 5) // Can't nominate last chancellor unless 5 players
-                .collect(Collectors.toList());
-
-        if (candidates.isEmpty()) {
-            return null;
-        }
+        // Can't nominate self, nor the last chancellor unless 5 players
+        String excluded = game.getAlivePlayers().size() <= 5 ? null : game.getLastChancellorName();
 
         // Simple strategy: random selection
-        return candidates.get(random.nextInt(candidates.size())).getName();
+        Player candidate = randomOtherAlivePlayer(game, bot, excluded);
+        return candidate != null ? candidate.getName() : null;
     }
 
     public static int decidePolicyDiscard(Game game, Player bot, List<Policy> hand) {
@@ -50,7 +42,7 @@ public class BotAI {
         }
 
         // Random discard
-        return random.nextInt(hand.size());
+        return game.getBotRandom().nextInt(hand.size());
     }
 
     public static int decidePolicyEnact(Game game, Player bot, List<Policy> hand) {
@@ -77,7 +69,7 @@ public class BotAI {
         }
 
         // Random selection
-        return random.nextInt(hand.size());
+        return game.getBotRandom().nextInt(hand.size());
     }
 
     public static String decideExecutiveAction(Game game, Player bot, String actionType) {
@@ -89,11 +81,9 @@ public class BotAI {
             case "investigate_or_special_election_or_policy_peek":
             case "investigate_or_special_election_or_execution":
                 // Randomly select a player to investigate
-                List<Player> targets = alivePlayers.stream()
-                        .filter(p -> !p.getName().equals(bot.getName()))
-                        .collect(Collectors.toList());
-                if (!targets.isEmpty()) {
-                    return targets.get(random.nextInt(targets.size())).getName();
+                Player investigated = randomOtherAlivePlayer(game, bot, null);
+                if (investigated != null) {
+                    return investigated.getName();
                 }
                 break;
             case "execution":
@@ -109,11 +99,9 @@ public class BotAI {
                     }
                 }
                 // Random execution
-                List<Player> executionTargets = alivePlayers.stream()
-                        .filter(p -> !p.getName().equals(bot.getName()))
-                        .collect(Collectors.toList());
-                if (!executionTargets.isEmpty()) {
-                    return executionTargets.get(random.nextInt(executionTargets.size())).getName();
+                Player executed = randomOtherAlivePlayer(game, bot, null);
+                if (executed != null) {
+                    return executed.getName();
                 }
                 break;
         }
@@ -144,8 +132,35 @@ public class BotAI {
         }
 
         // Random selection
-        return actions[random.nextInt(actions.length)];
+        return actions[game.getBotRandom().nextInt(actions.length)];
     }
-}
 
+    /**
+     * Uniform pick among alive players other than the bot and the excluded name.
+     * Counts first and then walks to the pick, so no candidate list is built.
+     */
+    private static Player randomOtherAlivePlayer(Game game, Player bot, String excluded) {
+        List<Player> alivePlayers = game.getAlivePlayers();
+        int count = 0;
+        for (int i = 0; i < alivePlayers.size(); i++) {
+            if (isOtherCandidate(alivePlayers.get(i), bot, excluded)) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        int pick = game.getBotRandom().nextInt(count);
+        for (int i = 0; i < alivePlayers.size(); i++) {
+            Player player = alivePlayers.get(i);
+            if (isOtherCandidate(player, bot, excluded) && pick-- == 0) {
+                return player;
+            }
+        }
+        return null;
+    }
 
+    private static boolean isOtherCandidate(Player player, Player bot, String excluded) {
+        return !player.getName().equals(bot.getName()) && !player.getName().equals(excluded);
+    }
+}
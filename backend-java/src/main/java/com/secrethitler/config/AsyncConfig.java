@@ -1,11 +1,75 @@
 package com.secrethitler.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Configuration
 @EnableAsync
 public class AsyncConfig {
-}
 
+    /**
+     * Shared pool that runs every game's command queue. Commands of one game run
+     * one at a time, different games run in parallel.
+     *
+     * With spring.threads.virtual.enabled=true each queue drain gets its own virtual
+     * thread, matching Tomcat and @Async which Spring Boot switches to virtual
+     * threads under the same flag. Otherwise a ForkJoinPool in async (FIFO) mode
+     * sized to the cores is used, which suits many small message-driven tasks.
+     */
+    @Bean(name = "gameCommandPool", destroyMethod = "shutdown")
+    public ExecutorService gameCommandPool(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                           @Value("${app.games.executor-threads:0}") int threads) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("game-command-", 0).factory());
+        }
+        int parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("game-command-" + thread.getPoolIndex());
+            return thread;
+        }, null, true);
+    }
 
+    /**
+     * Writes outbound WebSocket frames, one drain per connection at a time. Writes block
+     * on the client's network, so this is kept apart from the game command pool: a
+     * stalled client holds a send thread until it is disconnected, never a game. Virtual
+     * threads under spring.threads.virtual.enabled, otherwise a cached pool of daemon
+     * threads that grows with the number of connections writing at the same moment.
+     */
+    @Bean(name = "outboundSendPool", destroyMethod = "shutdown")
+    public ExecutorService outboundSendPool(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ws-send-", 0).factory());
+        }
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "ws-send-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Timer for bot turns. Its threads only hand due turns to the game command
+     * queues, so one thread serves any number of pending turns.
+     */
+    @Bean(name = "botScheduler", destroyMethod = "shutdownNow")
+    public ScheduledExecutorService botScheduler(@Value("${app.bots.scheduler-threads:1}") int threads) {
+        return new ScheduledThreadPoolExecutor(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "bot-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
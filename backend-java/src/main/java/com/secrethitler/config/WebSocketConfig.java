@@ -1,6 +1,11 @@
 package com.secrethitler.config;
 
 import com.secrethitler.websocket.GameWebSocketHandler;
+import com.secrethitler.websocket.NoCompressionFilter;
+import com.secrethitler.websocket.SessionContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
@@ -18,8 +23,22 @@ public class WebSocketConfig implements WebSocketConfigurer {
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-        registry.addHandler(gameWebSocketHandler, "/ws/{gameId}/{playerName}")
+        registry.addHandler(gameWebSocketHandler, "/ws/{gameId}/{playerName}", "/spectate/{gameId}")
+                .addInterceptors(new SessionContext.Interceptor())
                 .setAllowedOrigins("*");
     }
+
+    /**
+     * permessage-deflate is negotiated by Tomcat with every client that offers it;
+     * with app.websocket.compression.enabled=false the offer is hidden instead.
+     */
+    @Bean
+    public FilterRegistrationBean<NoCompressionFilter> noCompressionFilter(
+            @Value("${app.websocket.compression.enabled:true}") boolean compression) {
+        FilterRegistrationBean<NoCompressionFilter> registration = new FilterRegistrationBean<>(new NoCompressionFilter());
+        registration.addUrlPatterns("/ws/*", "/spectate/*");
+        registration.setEnabled(!compression);
+        return registration;
+    }
 }
 
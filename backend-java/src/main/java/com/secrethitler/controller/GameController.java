@@ -2,7 +2,11 @@ package com.secrethitler.controller;
 
 import com.secrethitler.engine.GameEngine;
 import com.secrethitler.models.Game;
+import com.secrethitler.service.GameCommandExecutor;
 import com.secrethitler.service.GameService;
+import com.secrethitler.websocket.ActionRateLimiter;
+import com.secrethitler.websocket.SpectatorManager;
+import com.secrethitler.websocket.WebSocketSender;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -19,6 +23,18 @@ public class GameController {
     @Autowired
     private GameService gameService;
 
+    @Autowired
+    private GameCommandExecutor commandExecutor;
+
+    @Autowired
+    private ActionRateLimiter rateLimiter;
+
+    @Autowired
+    private WebSocketSender sender;
+
+    @Autowired
+    private SpectatorManager spectators;
+
     @GetMapping("/")
     public ResponseEntity<Map<String, String>> root() {
         return ResponseEntity.ok(Map.of("message", "Secret Hitler API"));
@@ -46,7 +62,10 @@ public class GameController {
         }
 
         String gameId = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        Game game = GameEngine.createGame(gameId);
+        // A seed from an earlier game replays its roles and deck, and its bot decisions as long as the humans move the same
+        Game game = body.get("seed") instanceof Number seed
+                ? GameEngine.createGame(gameId, seed.longValue())
+                : GameEngine.createGame(gameId);
         
         // Set host if provided
         if (body.containsKey("host_name")) {
@@ -64,12 +83,29 @@ public class GameController {
 
     @GetMapping("/game/{gameId}")
     public ResponseEntity<Map<String, Object>> getGame(@PathVariable String gameId) {
-        Game game = gameService.getGame(gameId);
-        if (game == null) {
+        if (gameService.findGame(gameId) == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("error", "Game not found"));
         }
-        return ResponseEntity.ok(game.toDict(null));
+        // Looked up again on the queue: the game may have been hibernated in between
+        Map<String, Object> state = commandExecutor.submit(gameId, () -> {
+            Game game = gameService.findGame(gameId);
+            return game != null ? game.toDict(null) : null;
+        }).join();
+        if (state == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Game not found"));
+        }
+        return ResponseEntity.ok(state);
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> stats = gameService.getStats();
+        stats.putAll(rateLimiter.getStats());
+        stats.putAll(sender.getStats());
+        stats.putAll(spectators.getStats());
+        return ResponseEntity.ok(stats);
     }
 
     @GetMapping("/server-info")
@@ -1,51 +1,134 @@
 package com.secrethitler.controller;
 
+import com.secrethitler.engine.GameEngine;
 import com.secrethitler.models.Game;
 import com.secrethitler.models.Player;
+import com.secrethitler.service.GameCommandExecutor;
 import com.secrethitler.service.GameService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/player")
 @CrossOrigin(origins = "*")
 public class PlayerController {
+    private static final long UPDATE_TIMEOUT_MS = 5000;
+    // Well below what the journal and snapshots can encode, so any accepted profile is recorded
+    private static final int MAX_USERNAME_LENGTH = 50;
+    private static final int MAX_PICTURE_URL_LENGTH = 2048;
+    private static final int MAX_EMOTES = 16;
+    private static final int MAX_EMOTE_LENGTH = 64;
 
     @Autowired
     private GameService gameService;
 
+    @Autowired
+    private GameCommandExecutor commandExecutor;
+
     @PutMapping("/{playerName}/profile")
     public ResponseEntity<Map<String, Object>> updateProfile(
             @PathVariable String playerName,
             @RequestBody Map<String, Object> profileData) {
         
-        // Find player across all games
-        for (Game game : gameService.getGames().values()) {
-            Player player = game.getPlayerByName(playerName);
-            if (player != null) {
-                if (profileData.containsKey("username")) {
-                    player.setUsername((String) profileData.get("username"));
-                }
-                if (profileData.containsKey("profilePictureUrl")) {
-                    player.setProfilePictureUrl((String) profileData.get("profilePictureUrl"));
-                }
-                if (profileData.containsKey("selectedEmotes")) {
-                    @SuppressWarnings("unchecked")
-                    List<String> emotes = (List<String>) profileData.get("selectedEmotes");
-                    player.setSelectedEmotes(emotes);
-                }
+        String error = validateProfile(profileData);
+        if (error != null) {
+            return ResponseEntity.badRequest().body(Map.of("error", error));
+        }
+
+        // Seats can only be read on a game's own queue, so every game checks for the player
+        // there; the queues run in parallel and the request waits for all of them once
+        List<CompletableFuture<Boolean>> updates = new ArrayList<>();
+        for (String gameId : gameService.getGames().keySet()) {
+            // Looked up on the queue, so a game hibernated in between is not updated detached
+            updates.add(commandExecutor.submit(gameId, () -> {
+                Game game = gameService.findGame(gameId);
+                return game != null && applyProfile(game, playerName, profileData);
+            }));
+        }
+        boolean timedOut = false;
+        try {
+            CompletableFuture.allOf(updates.toArray(new CompletableFuture<?>[0]))
+                    .get(UPDATE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // A busy game still applies the update when its turn comes
+            timedOut = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            timedOut = true;
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+
+        for (CompletableFuture<Boolean> update : updates) {
+            if (update.isDone() && !update.isCompletedExceptionally() && update.join()) {
                 return ResponseEntity.ok(Map.of("success", true, "message", "Profile updated"));
             }
         }
-        
+        if (timedOut) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Timed out updating the profile"));
+        }
         return ResponseEntity.status(HttpStatus.NOT_FOUND)
                 .body(Map.of("error", "Player not found"));
     }
+
+    /** Returns what is wrong with the profile, or null if it can be applied. */
+    private String validateProfile(Map<String, Object> profileData) {
+        if (!isText(profileData.get("username"), MAX_USERNAME_LENGTH)) {
+            return "Username must be at most " + MAX_USERNAME_LENGTH + " characters";
+        }
+        if (!isText(profileData.get("profilePictureUrl"), MAX_PICTURE_URL_LENGTH)) {
+            return "Profile picture URL must be at most " + MAX_PICTURE_URL_LENGTH + " characters";
+        }
+        Object emotes = profileData.get("selectedEmotes");
+        if (emotes != null) {
+            if (!(emotes instanceof List<?> list) || list.size() > MAX_EMOTES) {
+                return "At most " + MAX_EMOTES + " emotes can be selected";
+            }
+            for (Object emote : list) {
+                if (emote == null || !isText(emote, MAX_EMOTE_LENGTH)) {
+                    return "Emotes must be at most " + MAX_EMOTE_LENGTH + " characters";
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isText(Object value, int maxLength) {
+        return value == null || value instanceof String text && text.length() <= maxLength;
+    }
+
+    private boolean applyProfile(Game game, String playerName, Map<String, Object> profileData) {
+        Player player = game.getPlayerByName(playerName);
+        if (player == null) {
+            return false;
+        }
+        String username = player.getUsername();
+        String profilePictureUrl = player.getProfilePictureUrl();
+        List<String> emotes = player.getSelectedEmotes();
+        if (profileData.containsKey("username")) {
+            username = (String) profileData.get("username");
+        }
+        if (profileData.containsKey("profilePictureUrl")) {
+            profilePictureUrl = (String) profileData.get("profilePictureUrl");
+        }
+        if (profileData.containsKey("selectedEmotes")) {
+            @SuppressWarnings("unchecked")
+            List<String> selected = (List<String>) profileData.get("selectedEmotes");
+            emotes = selected;
+        }
+        return GameEngine.setProfile(game, playerName, username, profilePictureUrl, emotes);
+    }
 }
 
 
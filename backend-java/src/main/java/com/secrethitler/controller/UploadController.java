@@ -1,7 +1,9 @@
 package com.secrethitler.controller;
 
+import com.secrethitler.engine.GameEngine;
 import com.secrethitler.models.Game;
 import com.secrethitler.service.FileStorageService;
+import com.secrethitler.service.GameCommandExecutor;
 import com.secrethitler.service.GameService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -22,6 +24,9 @@ public class UploadController {
     @Autowired
     private GameService gameService;
 
+    @Autowired
+    private GameCommandExecutor commandExecutor;
+
     @PostMapping("/upload/profile-picture")
     public ResponseEntity<Map<String, Object>> uploadProfilePicture(@RequestParam("file") MultipartFile file) {
         try {
@@ -42,8 +47,7 @@ public class UploadController {
             @PathVariable String gameId,
             @RequestParam("file") MultipartFile file) {
         try {
-            Game game = gameService.getGame(gameId);
-            if (game == null) {
+            if (gameService.getGame(gameId) == null) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(Map.of("error", "Game not found"));
             }
@@ -53,7 +57,14 @@ public class UploadController {
             }
 
             String fileUrl = fileStorageService.storeFile(file, "cards");
-            game.setCustomCardImageUrl(fileUrl);
+            commandExecutor.submit(gameId, () -> {
+                // Looked up on the queue, so an upload never lands on a hibernated copy
+                Game game = gameService.findGame(gameId);
+                if (game != null) {
+                    GameEngine.setCustomImages(game, fileUrl, game.getCustomBoardImageUrl());
+                }
+                return null;
+            }).join();
             return ResponseEntity.ok(Map.of("url", fileUrl));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -66,8 +77,7 @@ public class UploadController {
             @PathVariable String gameId,
             @RequestParam("file") MultipartFile file) {
         try {
-            Game game = gameService.getGame(gameId);
-            if (game == null) {
+            if (gameService.getGame(gameId) == null) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(Map.of("error", "Game not found"));
             }
@@ -77,7 +87,14 @@ public class UploadController {
             }
 
             String fileUrl = fileStorageService.storeFile(file, "boards");
-            game.setCustomBoardImageUrl(fileUrl);
+            commandExecutor.submit(gameId, () -> {
+                // Looked up on the queue, so an upload never lands on a hibernated copy
+                Game game = gameService.findGame(gameId);
+                if (game != null) {
+                    GameEngine.setCustomImages(game, game.getCustomCardImageUrl(), fileUrl);
+                }
+                return null;
+            }).join();
             return ResponseEntity.ok(Map.of("url", fileUrl));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -1,16 +1,29 @@
 package com.secrethitler.engine;
 
+import com.secrethitler.journal.EventWriter;
+import com.secrethitler.journal.GameEvent;
 import com.secrethitler.models.*;
 import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Rules of the game as static transitions on a Game.
+ *
+ * Every top-level call that changes the game records itself on the game's journal,
+ * if it has one, once the call is known to succeed. Calls made from inside another
+ * call are not recorded: replaying the outer call repeats them.
+ */
 public class GameEngine {
-    private static final Random random = new Random();
 
     public static Game createGame(String gameId) {
         return new Game(gameId);
     }
 
+    /** Creates a game whose shuffles and bot decisions replay from the given seed. */
+    public static Game createGame(String gameId, long seed) {
+        return new Game(gameId, seed);
+    }
+
     public static boolean addPlayer(Game game, String playerName) {
         return addPlayer(game, playerName, false);
     }
@@ -27,7 +40,26 @@ public class GameEngine {
         if (isBot) {
             player.setBotDifficulty("medium");
         }
-        game.getPlayers().add(player);
+        game.addPlayer(player);
+        game.touch();
+        if (game.getJournal() != null) {
+            game.getJournal().append(new GameEvent.Joined(playerName, isBot));
+        }
+        return true;
+    }
+
+    /** Removes a player who leaves before the game has started. */
+    public static boolean removePlayer(Game game, String playerName) {
+        if (game.getCurrentPhase() != Phase.LOBBY) {
+            return false;
+        }
+        if (!game.removePlayer(playerName)) {
+            return false;
+        }
+        game.touch();
+        if (game.getJournal() != null) {
+            game.getJournal().append(new GameEvent.Left(playerName));
+        }
         return true;
     }
 
@@ -67,28 +99,33 @@ public class GameEngine {
         }
 
         // Shuffle roles
-        Collections.shuffle(roles);
+        Collections.shuffle(roles, game.getRandom());
         for (int i = 0; i < game.getPlayers().size(); i++) {
             game.getPlayers().get(i).setRole(roles.get(i));
         }
 
         // Create and shuffle policy deck
-        game.setPolicyDeck(new ArrayList<>());
+        game.getPolicyDeck().clear();
+        game.getDiscardPile().clear();
         for (int i = 0; i < 6; i++) {
-            game.getPolicyDeck().add(new Policy(PolicyType.LIBERAL, 0));
+            game.getPolicyDeck().add(Policy.LIBERAL);
         }
         for (int i = 0; i < 11; i++) {
-            game.getPolicyDeck().add(new Policy(PolicyType.FASCIST, 0));
+            game.getPolicyDeck().add(Policy.FASCIST);
         }
-        Collections.shuffle(game.getPolicyDeck());
+        game.getPolicyDeck().shuffle(game.getRandom());
 
         // Set initial state - randomly select president
         game.setCurrentPhase(Phase.ELECTION);
         List<Player> alivePlayers = game.getAlivePlayers();
         if (!alivePlayers.isEmpty()) {
-            game.setCurrentPresidentIndex(random.nextInt(alivePlayers.size()));
+            game.setCurrentPresidentIndex(game.getRandom().nextInt(alivePlayers.size()));
         }
         game.setGameStarted(true);
+        game.touch();
+        if (game.getJournal() != null) {
+            game.getJournal().append(new GameEvent.Started());
+        }
 
         return true;
     }
@@ -128,6 +165,10 @@ public class GameEngine {
         for (Player player : game.getPlayers()) {
             player.setVote(null);
         }
+        game.touch();
+        if (game.getJournal() != null) {
+            game.getJournal().append(new GameEvent.Nominated(presidentName, chancellorName));
+        }
 
         return true;
     }
@@ -144,22 +185,39 @@ public class GameEngine {
 
         player.setVote(vote);
         game.getVotes().put(playerName, vote);
+        game.touch();
+        if (game.getJournal() != null) {
+            game.getJournal().append(new GameEvent.Voted(playerName, vote));
+        }
 
         return true;
     }
 
     public static boolean checkAllVotesCast(Game game) {
         List<Player> alivePlayers = game.getAlivePlayers();
-        return alivePlayers.stream().allMatch(p -> p.getVote() != null);
+        for (int i = 0; i < alivePlayers.size(); i++) {
+            if (alivePlayers.get(i).getVote() == null) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public static boolean resolveElection(Game game) {
         if (!checkAllVotesCast(game)) {
             return false;
         }
+        if (game.getJournal() != null) {
+            game.getJournal().append(new GameEvent.ElectionResolved());
+        }
 
         List<Player> alivePlayers = game.getAlivePlayers();
-        long jaVotes = game.getVotes().values().stream().filter(v -> v).count();
+        long jaVotes = 0;
+        for (Boolean vote : game.getVotes().values()) {
+            if (vote) {
+                jaVotes++;
+            }
+        }
         long neinVotes = alivePlayers.size() - jaVotes;
 
         if (jaVotes > neinVotes) {
@@ -205,6 +263,7 @@ public class GameEngine {
             }
             game.setNominatedChancellor(null);
         }
+        game.touch();
 
         return true;
     }
@@ -212,19 +271,18 @@ public class GameEngine {
     public static boolean drawPoliciesForPresident(Game game) {
         if (game.getPolicyDeck().size() < 3) {
             // Shuffle discard pile back into deck
-            game.getPolicyDeck().addAll(game.getDiscardPile());
-            game.setDiscardPile(new ArrayList<>());
-            Collections.shuffle(game.getPolicyDeck());
+            reshuffleDiscardPile(game);
         }
 
         if (game.getPolicyDeck().size() < 3) {
             return false;
         }
 
-        game.setPresidentHand(new ArrayList<>());
+        game.getPresidentHand().clear();
         for (int i = 0; i < 3; i++) {
-            game.getPresidentHand().add(game.getPolicyDeck().remove(0));
+            game.getPresidentHand().add(game.getPolicyDeck().draw());
         }
+        game.touch();
 
         return true;
     }
@@ -247,8 +305,12 @@ public class GameEngine {
         game.getDiscardPile().add(discarded);
 
         // Pass remaining 2 to chancellor
-        game.setChancellorHand(new ArrayList<>(game.getPresidentHand()));
-        game.setPresidentHand(new ArrayList<>());
+        game.getChancellorHand().clear();
+        game.getChancellorHand().takeAll(game.getPresidentHand());
+        game.touch();
+        if (game.getJournal() != null) {
+            game.getJournal().append(new GameEvent.PolicyDiscarded(presidentName, policyIndex));
+        }
 
         return true;
     }
@@ -265,12 +327,15 @@ public class GameEngine {
         if (policyIndex < 0 || policyIndex >= game.getChancellorHand().size()) {
             return false;
         }
+        if (game.getJournal() != null) {
+            game.getJournal().append(new GameEvent.PolicyEnacted(chancellorName, policyIndex));
+        }
 
         Policy enacted = game.getChancellorHand().remove(policyIndex);
         if (!game.getChancellorHand().isEmpty()) {
             game.getDiscardPile().add(game.getChancellorHand().get(0)); // Discard the other one
         }
-        game.setChancellorHand(new ArrayList<>());
+        game.getChancellorHand().clear();
 
         // Enact policy
         if (enacted.getType() == PolicyType.LIBERAL) {
@@ -281,6 +346,7 @@ public class GameEngine {
 
         // Check win conditions
         checkWinConditions(game);
+        game.touch();
 
         if (game.getWinner() != null) {
             game.setCurrentPhase(Phase.GAME_OVER);
@@ -301,9 +367,7 @@ public class GameEngine {
     public static boolean enactTopPolicy(Game game) {
         if (game.getPolicyDeck().isEmpty()) {
             if (!game.getDiscardPile().isEmpty()) {
-                game.getPolicyDeck().addAll(game.getDiscardPile());
-                game.setDiscardPile(new ArrayList<>());
-                Collections.shuffle(game.getPolicyDeck());
+                reshuffleDiscardPile(game);
             }
         }
 
@@ -311,7 +375,7 @@ public class GameEngine {
             return false;
         }
 
-        Policy policy = game.getPolicyDeck().remove(0);
+        Policy policy = game.getPolicyDeck().draw();
         if (policy.getType() == PolicyType.LIBERAL) {
             game.setLiberalPolicies(game.getLiberalPolicies() + 1);
         } else {
@@ -319,6 +383,7 @@ public class GameEngine {
         }
 
         checkWinConditions(game);
+        game.touch();
 
         if (game.getWinner() != null) {
             game.setCurrentPhase(Phase.GAME_OVER);
@@ -346,6 +411,7 @@ public class GameEngine {
             game.setExecutiveActionAvailable("investigate_or_special_election_or_execution");
         }
         // fascistPolicies >= 6 already checked in win conditions
+        game.touch();
     }
 
     public static boolean executeExecutiveAction(Game game, String presidentName, String actionType, String target) {
@@ -398,8 +464,9 @@ public class GameEngine {
                 if (targetPlayer3 == null || !targetPlayer3.isAlive()) {
                     return false;
                 }
-                targetPlayer3.setAlive(false);
+                game.setAlive(targetPlayer3, false);
                 targetPlayer3.setExecuted(true);
+                game.touch();
                 game.setExecutiveActionTarget(target);
 
                 // Check if Hitler was executed
@@ -410,6 +477,9 @@ public class GameEngine {
             default:
                 return false;
         }
+        if (game.getJournal() != null) {
+            game.getJournal().append(new GameEvent.ExecutiveAction(presidentName, actionType, target));
+        }
 
         // Move to next phase
         resetForNextRound(game);
@@ -429,18 +499,28 @@ public class GameEngine {
         }
     }
 
+    // The discard pile goes under the remaining cards and the whole deck is shuffled in place
+    private static void reshuffleDiscardPile(Game game) {
+        game.getPolicyDeck().takeAll(game.getDiscardPile());
+        game.getPolicyDeck().shuffle(game.getRandom());
+    }
+
     public static List<String> getPolicyPeek(Game game) {
         if (game.getPolicyDeck().size() < 3) {
             if (!game.getDiscardPile().isEmpty()) {
-                game.getPolicyDeck().addAll(game.getDiscardPile());
-                game.setDiscardPile(new ArrayList<>());
-                Collections.shuffle(game.getPolicyDeck());
+                reshuffleDiscardPile(game);
+                game.touch();
+                // The shuffle draws from the game's generator, so it has to be replayed
+                if (game.getJournal() != null) {
+                    game.getJournal().append(new GameEvent.PolicyPeeked());
+                }
             }
         }
 
+        // Only looks at the deck otherwise: a president reconnecting mid-peek changes nothing
         List<String> peek = new ArrayList<>();
         for (int i = 0; i < Math.min(3, game.getPolicyDeck().size()); i++) {
-            peek.add(game.getPolicyDeck().get(i).getType().getValue());
+            peek.add(game.getPolicyDeck().typeAt(i).getValue());
         }
 
         return peek;
@@ -455,8 +535,8 @@ public class GameEngine {
         }
 
         game.setVotes(new HashMap<>());
-        game.setPresidentHand(new ArrayList<>());
-        game.setChancellorHand(new ArrayList<>());
+        game.getPresidentHand().clear();
+        game.getChancellorHand().clear();
         game.setNominatedChancellor(null);
         game.setExecutiveActionAvailable(null);
         game.setExecutiveActionTarget(null);
@@ -471,6 +551,7 @@ public class GameEngine {
                 game.setCurrentPresidentIndex((game.getCurrentPresidentIndex() + 1) % alive.size());
             }
         }
+        game.touch();
     }
 
     public static void checkWinConditions(Game game) {
@@ -510,12 +591,81 @@ public class GameEngine {
 
     public static boolean allPlayersReady(Game game) {
         List<Player> alivePlayers = game.getAlivePlayers();
-        return alivePlayers.stream()
-                .allMatch(p -> game.getReadyStatus().getOrDefault(p.getName(), false));
+        for (int i = 0; i < alivePlayers.size(); i++) {
+            if (!game.getReadyStatus().getOrDefault(alivePlayers.get(i).getName(), false)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static void markReady(Game game, String playerName) {
+        game.getReadyStatus().put(playerName, true);
+        game.touch();
+        if (game.getJournal() != null) {
+            game.getJournal().append(new GameEvent.Ready(playerName));
+        }
     }
 
     public static void resetReadyStatus(Game game) {
         game.setReadyStatus(new HashMap<>());
+        game.touch();
+        if (game.getJournal() != null) {
+            game.getJournal().append(new GameEvent.ReadyReset());
+        }
+    }
+
+    /**
+     * Adds a player or system message to the chat log, which keeps the last
+     * Game.CHAT_CAPACITY messages. Chat is not part of the game state, so this does
+     * not touch() the game; the returned entry is what clients are sent.
+     */
+    public static ChatLog.Entry addChatMessage(Game game, ChatMessage message) {
+        ChatLog.Entry entry = game.getChatLog().add(message);
+        if (game.getJournal() != null) {
+            game.getJournal().append(new GameEvent.Chat(message.getSender(), message.getMessage(), message.getType(), message.getTimestamp()));
+        }
+        return entry;
+    }
+
+    /**
+     * Sets the profile a player shows at the table. A profile too long for the journal
+     * is rejected before anything changes, so the game never differs from its journal.
+     */
+    public static boolean setProfile(Game game, String playerName, String username,
+                                     String profilePictureUrl, List<String> selectedEmotes) {
+        Player player = game.getPlayerByName(playerName);
+        if (player == null) {
+            return false;
+        }
+        if (!EventWriter.fits(username) || !EventWriter.fits(profilePictureUrl) || !EventWriter.fits(selectedEmotes)) {
+            throw new IllegalArgumentException("Profile too long to record");
+        }
+        player.setUsername(username);
+        player.setProfilePictureUrl(profilePictureUrl);
+        player.setSelectedEmotes(selectedEmotes);
+        game.touch();
+        if (game.getJournal() != null) {
+            game.getJournal().append(new GameEvent.ProfileUpdated(playerName, username, profilePictureUrl, selectedEmotes));
+        }
+        return true;
+    }
+
+    public static void setCustomImages(Game game, String cardImageUrl, String boardImageUrl) {
+        game.setCustomCardImageUrl(cardImageUrl);
+        game.setCustomBoardImageUrl(boardImageUrl);
+        game.touch();
+        if (game.getJournal() != null) {
+            game.getJournal().append(new GameEvent.ImagesUpdated(cardImageUrl, boardImageUrl));
+        }
+    }
+
+    public static void updateRules(Game game, GameRules rules) {
+        game.setRules(rules);
+        game.touch();
+        if (game.getJournal() != null) {
+            game.getJournal().append(new GameEvent.RulesUpdated(rules.isShowRoleOnDeath(), rules.isAllowVeto(), rules.isSpecialElectionRules()));
+        }
     }
 }
 
@@ -0,0 +1,137 @@
+package com.secrethitler.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Growable byte buffer the journal encodes events into.
+ *
+ * Big-endian like ByteBuffer, which reads the events back. Strings are a two-byte
+ * length followed by their UTF-8 bytes, with 0xFFFF standing for null.
+ */
+public final class EventWriter {
+    static final int NULL_STRING = 0xFFFF;
+
+    private byte[] bytes;
+    private int length;
+
+    public EventWriter(int capacity) {
+        bytes = new byte[capacity];
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public void reset() {
+        length = 0;
+    }
+
+    /** Drops everything written after the given length, e.g. an entry whose encoding failed. */
+    public void truncate(int length) {
+        this.length = length;
+    }
+
+    /** The bytes written so far, without copying. Valid until the next write or reset. */
+    public ByteBuffer view() {
+        return ByteBuffer.wrap(bytes, 0, length);
+    }
+
+    public void putByte(int value) {
+        ensure(1);
+        bytes[length++] = (byte) value;
+    }
+
+    public void putBoolean(boolean value) {
+        putByte(value ? 1 : 0);
+    }
+
+    public void putShort(int value) {
+        ensure(2);
+        bytes[length++] = (byte) (value >>> 8);
+        bytes[length++] = (byte) value;
+    }
+
+    public void putInt(int value) {
+        ensure(4);
+        putIntAt(length, value);
+        length += 4;
+    }
+
+    public void putLong(long value) {
+        putInt((int) (value >>> 32));
+        putInt((int) value);
+    }
+
+    public void putString(String value) {
+        if (value == null) {
+            putShort(NULL_STRING);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length >= NULL_STRING) {
+            throw new IllegalArgumentException("String too long for the journal: " + utf8.length + " bytes");
+        }
+        putShort(utf8.length);
+        ensure(utf8.length);
+        System.arraycopy(utf8, 0, bytes, length, utf8.length);
+        length += utf8.length;
+    }
+
+    /** A two-byte count followed by the strings, with a count of 0xFFFF standing for null. */
+    public void putStrings(List<String> values) {
+        if (values == null) {
+            putShort(NULL_STRING);
+            return;
+        }
+        if (values.size() >= NULL_STRING) {
+            throw new IllegalArgumentException("Too many strings for the journal: " + values.size());
+        }
+        putShort(values.size());
+        for (String value : values) {
+            putString(value);
+        }
+    }
+
+    /** Whether putString can encode the value. */
+    public static boolean fits(String value) {
+        return value == null || value.length() * 3 < NULL_STRING
+                || value.getBytes(StandardCharsets.UTF_8).length < NULL_STRING;
+    }
+
+    /** Whether putStrings can encode the values. */
+    public static boolean fits(List<String> values) {
+        if (values == null) {
+            return true;
+        }
+        if (values.size() >= NULL_STRING) {
+            return false;
+        }
+        for (String value : values) {
+            if (!fits(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Overwrites four bytes already written, e.g. a length prefix once the entry is complete. */
+    public void putIntAt(int position, int value) {
+        bytes[position] = (byte) (value >>> 24);
+        bytes[position + 1] = (byte) (value >>> 16);
+        bytes[position + 2] = (byte) (value >>> 8);
+        bytes[position + 3] = (byte) value;
+    }
+
+    byte[] array() {
+        return bytes;
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.secrethitler.journal;
+
+import com.secrethitler.engine.GameEngine;
+import com.secrethitler.models.ChatMessage;
+import com.secrethitler.models.Game;
+import com.secrethitler.models.GameRules;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An accepted engine command, as recorded in a game's journal.
+ *
+ * Each event is one top-level GameEngine call that succeeded. Applying the events in
+ * order to a game created from the same seed repeats the same calls, and since every
+ * random draw comes from the game's own generator it ends in the same state.
+ * Events nested inside another call (drawing the president's hand, enacting the top
+ * policy after three failed elections, resetting the round) are not recorded.
+ */
+public sealed interface GameEvent {
+
+    /** Stable code written in front of the encoded fields. */
+    byte code();
+
+    void write(EventWriter out);
+
+    void applyTo(Game game);
+
+    record Created(String gameId, long seed, String hostName) implements GameEvent {
+        public byte code() { return 1; }
+
+        public void write(EventWriter out) {
+            out.putString(gameId);
+            out.putLong(seed);
+            out.putString(hostName);
+        }
+
+        public void applyTo(Game game) {
+            game.setGameId(gameId);
+            game.setSeed(seed);
+            game.setHostName(hostName);
+        }
+    }
+
+    record Joined(String playerName, boolean bot) implements GameEvent {
+        public byte code() { return 2; }
+
+        public void write(EventWriter out) {
+            out.putString(playerName);
+            out.putBoolean(bot);
+        }
+
+        public void applyTo(Game game) {
+            GameEngine.addPlayer(game, playerName, bot);
+        }
+    }
+
+    record Left(String playerName) implements GameEvent {
+        public byte code() { return 3; }
+
+        public void write(EventWriter out) {
+            out.putString(playerName);
+        }
+
+        public void applyTo(Game game) {
+            GameEngine.removePlayer(game, playerName);
+        }
+    }
+
+    record Started() implements GameEvent {
+        public byte code() { return 4; }
+
+        public void write(EventWriter out) {
+        }
+
+        public void applyTo(Game game) {
+            GameEngine.startGame(game);
+        }
+    }
+
+    record Nominated(String presidentName, String chancellorName) implements GameEvent {
+        public byte code() { return 5; }
+
+        public void write(EventWriter out) {
+            out.putString(presidentName);
+            out.putString(chancellorName);
+        }
+
+        public void applyTo(Game game) {
+            GameEngine.nominateChancellor(game, presidentName, chancellorName);
+        }
+    }
+
+    record Voted(String playerName, boolean vote) implements GameEvent {
+        public byte code() { return 6; }
+
+        public void write(EventWriter out) {
+            out.putString(playerName);
+            out.putBoolean(vote);
+        }
+
+        public void applyTo(Game game) {
+            GameEngine.castVote(game, playerName, vote);
+        }
+    }
+
+    record ElectionResolved() implements GameEvent {
+        public byte code() { return 7; }
+
+        public void write(EventWriter out) {
+        }
+
+        public void applyTo(Game game) {
+            GameEngine.resolveElection(game);
+        }
+    }
+
+    record PolicyDiscarded(String presidentName, int policyIndex) implements GameEvent {
+        public byte code() { return 8; }
+
+        public void write(EventWriter out) {
+            out.putString(presidentName);
+            out.putByte(policyIndex);
+        }
+
+        public void applyTo(Game game) {
+            GameEngine.presidentDiscardPolicy(game, presidentName, policyIndex);
+        }
+    }
+
+    record PolicyEnacted(String chancellorName, int policyIndex) implements GameEvent {
+        public byte code() { return 9; }
+
+        public void write(EventWriter out) {
+            out.putString(chancellorName);
+            out.putByte(policyIndex);
+        }
+
+        public void applyTo(Game game) {
+            GameEngine.chancellorEnactPolicy(game, chancellorName, policyIndex);
+        }
+    }
+
+    record ExecutiveAction(String presidentName, String actionType, String target) implements GameEvent {
+        public byte code() { return 10; }
+
+        public void write(EventWriter out) {
+            out.putString(presidentName);
+            out.putString(actionType);
+            out.putString(target);
+        }
+
+        public void applyTo(Game game) {
+            GameEngine.executeExecutiveAction(game, presidentName, actionType, target);
+        }
+    }
+
+    /** A policy peek that had to shuffle the discard pile back in, which draws from the generator. */
+    record PolicyPeeked() implements GameEvent {
+        public byte code() { return 11; }
+
+        public void write(EventWriter out) {
+        }
+
+        public void applyTo(Game game) {
+            GameEngine.getPolicyPeek(game);
+        }
+    }
+
+    record Ready(String playerName) implements GameEvent {
+        public byte code() { return 12; }
+
+        public void write(EventWriter out) {
+            out.putString(playerName);
+        }
+
+        public void applyTo(Game game) {
+            GameEngine.markReady(game, playerName);
+        }
+    }
+
+    record ReadyReset() implements GameEvent {
+        public byte code() { return 13; }
+
+        public void write(EventWriter out) {
+        }
+
+        public void applyTo(Game game) {
+            GameEngine.resetReadyStatus(game);
+        }
+    }
+
+    record Chat(String sender, String message, ChatMessage.MessageType type, LocalDateTime timestamp)
+            implements GameEvent {
+        public byte code() { return 14; }
+
+        public void write(EventWriter out) {
+            out.putString(sender);
+            out.putString(message);
+            out.putByte(type.ordinal());
+            out.putLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+            out.putInt(timestamp.getNano());
+        }
+
+        public void applyTo(Game game) {
+            GameEngine.addChatMessage(game, new ChatMessage(sender, message, timestamp, type));
+        }
+    }
+
+    record RulesUpdated(boolean showRoleOnDeath, boolean allowVeto, boolean specialElectionRules)
+            implements GameEvent {
+        public byte code() { return 15; }
+
+        public void write(EventWriter out) {
+            out.putBoolean(showRoleOnDeath);
+            out.putBoolean(allowVeto);
+            out.putBoolean(specialElectionRules);
+        }
+
+        public void applyTo(Game game) {
+            GameEngine.updateRules(game, new GameRules(showRoleOnDeath, allowVeto, specialElectionRules));
+        }
+    }
+
+    record ProfileUpdated(String playerName, String username, String profilePictureUrl,
+                          List<String> selectedEmotes) implements GameEvent {
+        public byte code() { return 16; }
+
+        public void write(EventWriter out) {
+            out.putString(playerName);
+            out.putString(username);
+            out.putString(profilePictureUrl);
+            out.putStrings(selectedEmotes);
+        }
+
+        public void applyTo(Game game) {
+            GameEngine.setProfile(game, playerName, username, profilePictureUrl, selectedEmotes);
+        }
+    }
+
+    record ImagesUpdated(String cardImageUrl, String boardImageUrl) implements GameEvent {
+        public byte code() { return 17; }
+
+        public void write(EventWriter out) {
+            out.putString(cardImageUrl);
+            out.putString(boardImageUrl);
+        }
+
+        public void applyTo(Game game) {
+            GameEngine.setCustomImages(game, cardImageUrl, boardImageUrl);
+        }
+    }
+
+    /** Decodes one event whose code has already been read; the buffer is left after its fields. */
+    static GameEvent read(byte code, ByteBuffer in) {
+        switch (code) {
+            case 1:
+                return new Created(readString(in), in.getLong(), readString(in));
+            case 2:
+                return new Joined(readString(in), in.get() != 0);
+            case 3:
+                return new Left(readString(in));
+            case 4:
+                return new Started();
+            case 5:
+                return new Nominated(readString(in), readString(in));
+            case 6:
+                return new Voted(readString(in), in.get() != 0);
+            case 7:
+                return new ElectionResolved();
+            case 8:
+                return new PolicyDiscarded(readString(in), in.get());
+            case 9:
+                return new PolicyEnacted(readString(in), in.get());
+            case 10:
+                return new ExecutiveAction(readString(in), readString(in), readString(in));
+            case 11:
+                return new PolicyPeeked();
+            case 12:
+                return new Ready(readString(in));
+            case 13:
+                return new ReadyReset();
+            case 14: {
+                String sender = readString(in);
+                String message = readString(in);
+                ChatMessage.MessageType type = ChatMessage.MessageType.values()[in.get()];
+                long seconds = in.getLong();
+                int nanos = in.getInt();
+                return new Chat(sender, message, type, LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC));
+            }
+            case 15:
+                return new RulesUpdated(in.get() != 0, in.get() != 0, in.get() != 0);
+            case 16:
+                return new ProfileUpdated(readString(in), readString(in), readString(in), readStrings(in));
+            case 17:
+                return new ImagesUpdated(readString(in), readString(in));
+            default:
+                throw new IllegalArgumentException("Unknown journal event code " + code);
+        }
+    }
+
+    private static List<String> readStrings(ByteBuffer in) {
+        int count = in.getShort() & 0xFFFF;
+        if (count == EventWriter.NULL_STRING) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        if (length == EventWriter.NULL_STRING) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,156 @@
+package com.secrethitler.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only event log of one game.
+ *
+ * The game's command queue appends encoded events to an in-memory buffer; a single
+ * writer thread later swaps that buffer out and writes everything appended since
+ * the previous flush with one FileChannel write. Appending never touches the disk,
+ * so recording a command costs an encode and an uncontended lock.
+ *
+ * Each entry is framed as [int length][int CRC32C][byte code][fields], where length
+ * and CRC cover the code and fields. A reader stops at the first entry that is cut
+ * short or fails its checksum, which is what a crash in the middle of a write leaves.
+ *
+ * The journal is also the game's write-ahead log: a snapshot records how many events
+ * and bytes of the journal it includes, and recovery replays the rest. sync() forces
+ * the written entries to disk; the writer calls it for many entries at once.
+ */
+public final class GameJournal {
+    static final int HEADER_BYTES = 8;
+
+    private final String gameId;
+    private final Path file;
+    private final Consumer<GameJournal> onDirty;
+    private final AtomicBoolean queued = new AtomicBoolean();
+    private final CRC32C crc = new CRC32C();
+
+    // Guarded by this
+    private EventWriter pending = new EventWriter(512);
+    private long eventCount;
+    private long appendedBytes;
+
+    // Writer thread only
+    private EventWriter flushing = new EventWriter(512);
+    private FileChannel channel;
+    private boolean unsynced;
+    private boolean closed;
+
+    public GameJournal(String gameId, Path file, Consumer<GameJournal> onDirty) {
+        this(gameId, file, onDirty, 0, 0);
+    }
+
+    /** Continues a journal whose file already holds eventCount events in length bytes. */
+    public GameJournal(String gameId, Path file, Consumer<GameJournal> onDirty, long eventCount, long length) {
+        this.gameId = gameId;
+        this.file = file;
+        this.onDirty = onDirty;
+        this.eventCount = eventCount;
+        this.appendedBytes = length;
+    }
+
+    public String getGameId() {
+        return gameId;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public synchronized long getEventCount() {
+        return eventCount;
+    }
+
+    /** Length the file will have once everything appended so far is written. */
+    public synchronized long getAppendedBytes() {
+        return appendedBytes;
+    }
+
+    /** Records an accepted command. Called on the game's command queue. */
+    public void append(GameEvent event) {
+        synchronized (this) {
+            int start = pending.length();
+            pending.putInt(0);
+            pending.putInt(0);
+            pending.putByte(event.code());
+            try {
+                event.write(pending);
+            } catch (RuntimeException e) {
+                // A half-written entry would end the journal for every reader
+                pending.truncate(start);
+                throw e;
+            }
+            int payloadStart = start + HEADER_BYTES;
+            int payloadLength = pending.length() - payloadStart;
+            crc.reset();
+            crc.update(pending.array(), payloadStart, payloadLength);
+            pending.putIntAt(start, payloadLength);
+            pending.putIntAt(start + 4, (int) crc.getValue());
+            eventCount++;
+            appendedBytes += pending.length() - start;
+        }
+        if (queued.compareAndSet(false, true)) {
+            onDirty.accept(this);
+        }
+    }
+
+    /** Writes everything appended since the last flush. Writer thread only. */
+    public int flush() throws IOException {
+        if (closed) {
+            return 0;
+        }
+        // Cleared first: an append racing with the swap queues the journal again
+        queued.set(false);
+        synchronized (this) {
+            EventWriter full = pending;
+            flushing.reset();
+            pending = flushing;
+            flushing = full;
+        }
+        int length = flushing.length();
+        if (length == 0) {
+            return 0;
+        }
+        if (channel == null) {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        ByteBuffer bytes = flushing.view();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        unsynced = true;
+        return length;
+    }
+
+    /** Forces everything written since the last sync to disk. Writer thread only. */
+    public void sync() throws IOException {
+        if (unsynced && channel != null) {
+            channel.force(false);
+        }
+        unsynced = false;
+    }
+
+    /** Flushes what is left and releases the file. Writer thread only. */
+    public void close() throws IOException {
+        try {
+            flush();
+            sync();
+        } finally {
+            closed = true;
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.secrethitler.journal;
+
+import com.secrethitler.models.Game;
+import com.secrethitler.models.Player;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads game journals and rebuilds games from them.
+ *
+ * Usage: GameReplay <journal file> [--events]
+ * Prints the final state of the replayed game, and with --events every event first.
+ */
+public final class GameReplay {
+
+    /** A game rebuilt from disk and the length of its journal, in events and bytes, that it includes. */
+    public record Recovered(Game game, long journalEvents, long journalBytes) {
+    }
+
+    private GameReplay() {
+    }
+
+    public static List<GameEvent> readEvents(Path file) throws IOException {
+        return readEvents(ByteBuffer.wrap(Files.readAllBytes(file)));
+    }
+
+    /**
+     * Decodes the entries in the buffer up to the first one that is incomplete or fails
+     * its checksum; anything after that point was never fully written. The buffer is
+     * left at the end of the last complete entry.
+     */
+    public static List<GameEvent> readEvents(ByteBuffer in) {
+        List<GameEvent> events = new ArrayList<>();
+        CRC32C crc = new CRC32C();
+        while (in.remaining() >= GameJournal.HEADER_BYTES) {
+            int start = in.position();
+            int length = in.getInt();
+            int checksum = in.getInt();
+            if (length <= 0 || length > in.remaining()) {
+                in.position(start);
+                break;
+            }
+            crc.reset();
+            crc.update(in.array(), in.arrayOffset() + in.position(), length);
+            if ((int) crc.getValue() != checksum) {
+                in.position(start);
+                break;
+            }
+            ByteBuffer entry = in.slice(in.position(), length);
+            events.add(GameEvent.read(entry.get(), entry));
+            in.position(in.position() + length);
+        }
+        return events;
+    }
+
+    /**
+     * Rebuilds a game by applying the events, starting with its Created event, to a new Game.
+     * Bot decisions are in the journal as the moves they produced, so BotAI is not consulted
+     * and the replayed game's bot generator stays where the seed put it.
+     */
+    public static Game replay(List<GameEvent> events) {
+        if (events.isEmpty() || !(events.get(0) instanceof GameEvent.Created)) {
+            throw new IllegalArgumentException("A journal must start with the game's Created event");
+        }
+        Game game = new Game();
+        for (GameEvent event : events) {
+            event.applyTo(game);
+        }
+        return game;
+    }
+
+    public static Game replay(Path file) throws IOException {
+        return replay(readEvents(file));
+    }
+
+    /**
+     * Rebuilds a game from its snapshot entry and the journal entries written after it.
+     * Without an entry, or one that does not fit the journal, the whole journal is replayed.
+     * A torn or corrupt tail is ignored; journalBytes is where it starts.
+     */
+    public static Recovered recover(GameSnapshot.Entry entry, ByteBuffer journal) {
+        if (entry != null && entry.journalBytes() <= journal.limit()) {
+            try {
+                Game game = GameSnapshot.decode(entry.state());
+                journal.position((int) entry.journalBytes());
+                List<GameEvent> events = readEvents(journal);
+                for (GameEvent event : events) {
+                    event.applyTo(game);
+                }
+                return new Recovered(game, entry.journalEvents() + events.size(), journal.position());
+            } catch (Exception e) {
+                // Fall back to the journal alone
+                e.printStackTrace();
+            }
+        }
+        journal.position(0);
+        List<GameEvent> events = readEvents(journal);
+        return new Recovered(replay(events), events.size(), journal.position());
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: GameReplay <journal file> [--events]");
+            System.exit(1);
+        }
+        List<GameEvent> events = readEvents(Path.of(args[0]));
+        if (args.length > 1 && "--events".equals(args[1])) {
+            for (int i = 0; i < events.size(); i++) {
+                System.out.printf("%5d  %s%n", i, events.get(i));
+            }
+            System.out.println();
+        }
+
+        Game game = replay(events);
+        System.out.printf("Game %s (seed %d): %d events%n", game.getGameId(), game.getSeed(), events.size());
+        System.out.printf("Phase %s, liberal %d, fascist %d, election tracker %d%s%n",
+                game.getCurrentPhase().getValue(), game.getLiberalPolicies(), game.getFascistPolicies(),
+                game.getElectionTracker(), game.getWinner() != null ? ", winner " + game.getWinner() : "");
+        for (Player player : game.getPlayers()) {
+            System.out.printf("  %-20s %-8s %s%s%n", player.getName(),
+                    player.getRole() != null ? player.getRole().getValue() : "-",
+                    player.isAlive() ? "alive" : "dead", player.isBot() ? ", bot" : "");
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.secrethitler.journal;
+
+import com.secrethitler.models.ChatMessage;
+import com.secrethitler.models.CompactGameState;
+import com.secrethitler.models.Game;
+import com.secrethitler.models.Player;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary snapshots of games.
+ *
+ * A game is stored as its CompactGameState followed by what that leaves out: custom
+ * images, player profiles and the chat. A snapshot file holds one entry per game
+ * with the journal position the state corresponds to, so recovery only replays the
+ * journal from there. Files are written to a temporary name, forced to disk and then
+ * renamed over the previous snapshot, so a crash leaves either the old or the new one.
+ */
+public final class GameSnapshot {
+    private static final int MAGIC = 0x53485332; // "SHS2"
+
+    /** One game in a snapshot file: its encoded state and how much of its journal that includes. */
+    public record Entry(String gameId, long journalEvents, long journalBytes, byte[] state) {
+    }
+
+    private GameSnapshot() {
+    }
+
+    /**
+     * Encodes the game together with its journal position, or returns null when it has
+     * no journal. Must run on the game's queue so the two agree.
+     */
+    public static Entry capture(Game game) throws IOException {
+        GameJournal journal = game.getJournal();
+        if (journal == null) {
+            return null;
+        }
+        return new Entry(game.getGameId(), journal.getEventCount(), journal.getAppendedBytes(), encode(game));
+    }
+
+    public static byte[] encode(Game game) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        DataOutputStream out = new DataOutputStream(bytes);
+        CompactGameState.from(game).write(out);
+        writeNullable(out, game.getCustomCardImageUrl());
+        writeNullable(out, game.getCustomBoardImageUrl());
+        for (Player player : game.getPlayers()) {
+            writeNullable(out, player.getUsername());
+            writeNullable(out, player.getProfilePictureUrl());
+            List<String> emotes = player.getSelectedEmotes();
+            out.writeShort(emotes == null ? -1 : emotes.size());
+            if (emotes != null) {
+                for (String emote : emotes) {
+                    out.writeUTF(emote);
+                }
+            }
+        }
+        List<ChatMessage> chat = game.getChatLog().messages();
+        out.writeLong(game.getChatLog().getNextSeq());
+        out.writeShort(chat.size());
+        for (ChatMessage message : chat) {
+            writeNullable(out, message.getSender());
+            writeNullable(out, message.getMessage());
+            out.writeByte(message.getType().ordinal());
+            LocalDateTime timestamp = message.getTimestamp();
+            out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(timestamp.getNano());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    public static Game decode(byte[] state) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(state));
+        Game game = CompactGameState.read(in).toGame();
+        game.setCustomCardImageUrl(readNullable(in));
+        game.setCustomBoardImageUrl(readNullable(in));
+        for (Player player : game.getPlayers()) {
+            player.setUsername(readNullable(in));
+            player.setProfilePictureUrl(readNullable(in));
+            int emoteCount = in.readShort();
+            List<String> emotes = null;
+            if (emoteCount >= 0) {
+                emotes = new ArrayList<>(emoteCount);
+                for (int i = 0; i < emoteCount; i++) {
+                    emotes.add(in.readUTF());
+                }
+            }
+            player.setSelectedEmotes(emotes);
+        }
+        long nextChatSeq = in.readLong();
+        int chatCount = in.readShort();
+        game.getChatLog().startAt(nextChatSeq - chatCount);
+        for (int i = 0; i < chatCount; i++) {
+            String sender = readNullable(in);
+            String message = readNullable(in);
+            ChatMessage.MessageType type = ChatMessage.MessageType.values()[in.readByte()];
+            LocalDateTime timestamp = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+            game.getChatLog().add(new ChatMessage(sender, message, timestamp, type));
+        }
+        game.touch();
+        return game;
+    }
+
+    /** Atomically replaces the snapshot file with the given entries. */
+    public static void writeFile(Path file, Collection<Entry> entries) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+            CRC32C crc = new CRC32C();
+            out.writeInt(MAGIC);
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeUTF(entry.gameId());
+                out.writeLong(entry.journalEvents());
+                out.writeLong(entry.journalBytes());
+                crc.reset();
+                crc.update(entry.state());
+                out.writeInt(entry.state().length);
+                out.writeInt((int) crc.getValue());
+                out.write(entry.state());
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot file into entries by game id. A missing file is an empty snapshot;
+     * an entry that fails its checksum is skipped.
+     */
+    public static Map<String, Entry> readFile(Path file) throws IOException {
+        Map<String, Entry> entries = new HashMap<>();
+        InputStream stream;
+        try {
+            stream = Files.newInputStream(file);
+        } catch (NoSuchFileException e) {
+            return entries;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a game snapshot: " + file);
+            }
+            int count = in.readInt();
+            CRC32C crc = new CRC32C();
+            for (int i = 0; i < count; i++) {
+                String gameId = in.readUTF();
+                long journalEvents = in.readLong();
+                long journalBytes = in.readLong();
+                byte[] state = new byte[in.readInt()];
+                int checksum = in.readInt();
+                in.readFully(state);
+                crc.reset();
+                crc.update(state);
+                if ((int) crc.getValue() != checksum) {
+                    System.err.println("Skipping corrupt snapshot entry for game " + gameId);
+                    continue;
+                }
+                entries.put(gameId, new Entry(gameId, journalEvents, journalBytes, state));
+            }
+        } catch (EOFException e) {
+            // Renamed into place only once complete, so this is damage from outside
+            System.err.println("Snapshot " + file + " is truncated; using the " + entries.size() + " complete entries");
+        }
+        return entries;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
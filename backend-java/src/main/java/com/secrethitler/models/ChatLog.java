@@ -0,0 +1,95 @@
+package com.secrethitler.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The last messages of a game's chat in a fixed-size ring.
+ *
+ * Every message gets the next sequence number and is turned into its client payload
+ * once, when it is added; the chat_message broadcast and every chat_history page hand
+ * out that same map. Adding a message over capacity overwrites the oldest slot.
+ * Only used on the game's command queue.
+ */
+public class ChatLog {
+
+    /** A message with its sequence number and the payload sent to clients. */
+    public record Entry(long seq, ChatMessage message, Map<String, Object> payload) {
+    }
+
+    private final Entry[] entries;
+    private long nextSeq;
+    private int size;
+
+    public ChatLog(int capacity) {
+        this.entries = new Entry[capacity];
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    /** Sequence number the next message will get; also the number of messages ever added. */
+    public long getNextSeq() {
+        return nextSeq;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Entry add(ChatMessage message) {
+        long seq = nextSeq++;
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("seq", seq);
+        payload.put("sender", message.getSender());
+        payload.put("message", message.getMessage());
+        payload.put("timestamp", message.getTimestamp().toString());
+        payload.put("type", message.getType().name());
+        Entry entry = new Entry(seq, message, Collections.unmodifiableMap(payload));
+        entries[(int) (seq % entries.length)] = entry;
+        if (size < entries.length) {
+            size++;
+        }
+        return entry;
+    }
+
+    /** Messages still held, oldest first. */
+    public List<ChatMessage> messages() {
+        List<ChatMessage> messages = new ArrayList<>(size);
+        for (long seq = nextSeq - size; seq < nextSeq; seq++) {
+            messages.add(entries[(int) (seq % entries.length)].message());
+        }
+        return messages;
+    }
+
+    /**
+     * Payloads of up to limit messages with a sequence number below beforeSeq, oldest
+     * first. A negative beforeSeq pages back from the newest message.
+     */
+    public List<Map<String, Object>> page(long beforeSeq, int limit) {
+        long end = beforeSeq < 0 ? nextSeq : Math.min(beforeSeq, nextSeq);
+        long start = Math.max(end - limit, nextSeq - size);
+        List<Map<String, Object>> page = new ArrayList<>((int) Math.max(end - start, 0));
+        for (long seq = start; seq < end; seq++) {
+            page.add(entries[(int) (seq % entries.length)].payload());
+        }
+        return page;
+    }
+
+    /** Whether a message older than seq is still held. */
+    public boolean hasBefore(long seq) {
+        return seq > nextSeq - size;
+    }
+
+    /** Continues numbering from seq, for a game restored from a snapshot. Log must be empty. */
+    public void startAt(long seq) {
+        if (nextSeq != 0) {
+            throw new IllegalStateException("Chat log already has messages");
+        }
+        nextSeq = seq;
+    }
+}
@@ -0,0 +1,510 @@
+package com.secrethitler.models;
+
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Primitive encoding of everything the rules of a Game depend on, for simulation,
+ * snapshots and bot search.
+ *
+ * Per-seat facts are bitmasks indexed by seat (bit i = players.get(i)), roles are
+ * two bits per seat in one int, the deck, discard pile and hands are bit sequences
+ * (bit i set = the i-th card is fascist) with a size, and counters are bytes.
+ * The seed and the current position of both game generators are kept as well, so a
+ * decoded game shuffles and decides exactly as the original would have.
+ * Player names are only referenced, never copied, so re-encoding a game into an
+ * existing instance and copying one encoding into another allocate nothing.
+ *
+ * from/toGame round-trip the game state exactly. Chat history, custom images and
+ * player profile fields (username, picture, emotes) are presentation data and are
+ * not part of the encoding; applyTo writes a state back into a Game that keeps them.
+ * write/read store the encoding in a fixed binary layout of about 90 bytes plus names.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class CompactGameState {
+    public static final int MAX_PLAYERS = 10;
+    public static final int MAX_CARDS = 64;
+
+    private static final int ROLE_BITS = 2;
+    private static final int ROLE_MASK = 0b11;
+    private static final Role[] ROLES = {null, Role.LIBERAL, Role.FASCIST, Role.HITLER};
+    private static final Phase[] PHASES = Phase.values();
+    private static final String[] WINNERS = {null, "Liberal", "Fascist"};
+    // Every value GameEngine.checkExecutiveActions can set, 0 = none
+    private static final String[] EXECUTIVE_ACTIONS = {
+        null,
+        "investigate",
+        "investigate_or_special_election",
+        "investigate_or_special_election_or_policy_peek",
+        "investigate_or_special_election_or_execution"
+    };
+
+    private static final int GAME_STARTED = 1;
+    private static final int SHOW_ROLE_ON_DEATH = 1 << 1;
+    private static final int ALLOW_VETO = 1 << 2;
+    private static final int SPECIAL_ELECTION_RULES = 1 << 3;
+
+    private String gameId;
+    private String hostName;
+    @Getter(AccessLevel.NONE)
+    private String[] names = new String[0];
+    private byte playerCount;
+
+    private int roles;
+    private short alive;
+    private short executed;
+    private short bots;
+    private short presidentFlags;
+    private short chancellorFlags;
+    private short voted;
+    private short votedJa;
+    private short ready;
+
+    private long deck;
+    private long discardPile;
+    private long presidentHand;
+    private long chancellorHand;
+    private byte deckSize;
+    private byte discardPileSize;
+    private byte presidentHandSize;
+    private byte chancellorHandSize;
+
+    private byte liberalPolicies;
+    private byte fascistPolicies;
+    private byte electionTracker;
+    private byte phase;
+    private byte currentPresidentIndex;
+    // Seat indexes, -1 = none
+    private byte nominatedChancellor = -1;
+    private byte lastChancellor = -1;
+    private byte lastPresident = -1;
+    private byte executiveActionTarget = -1;
+    private byte executiveAction;
+    private byte winner;
+    private byte flags;
+
+    private long seed;
+    private long randomState;
+    private long botRandomState;
+
+    public static CompactGameState from(Game game) {
+        CompactGameState state = new CompactGameState();
+        state.copyFrom(game);
+        return state;
+    }
+
+    /** Re-encodes the game into this instance, reusing the name table when the seats are unchanged. */
+    public void copyFrom(Game game) {
+        List<Player> players = game.getPlayers();
+        int count = players.size();
+        if (count > MAX_PLAYERS) {
+            throw new IllegalArgumentException("At most " + MAX_PLAYERS + " players can be encoded");
+        }
+        if (!sameSeats(players)) {
+            names = new String[count];
+            for (int i = 0; i < count; i++) {
+                names[i] = players.get(i).getName();
+            }
+        }
+        gameId = game.getGameId();
+        hostName = game.getHostName();
+        playerCount = (byte) count;
+
+        roles = 0;
+        // Seat bits are collected as ints and narrowed once; a game has at most 10 seats
+        int aliveBits = 0, executedBits = 0, botBits = 0, presidentBits = 0, chancellorBits = 0;
+        int votedBits = 0, votedJaBits = 0, readyBits = 0;
+        Map<String, Boolean> votes = game.getVotes();
+        Map<String, Boolean> readyStatus = game.getReadyStatus();
+        for (int i = 0; i < count; i++) {
+            Player player = players.get(i);
+            roles |= roleCode(player.getRole()) << (i * ROLE_BITS);
+            int bit = 1 << i;
+            if (player.isAlive()) aliveBits |= bit;
+            if (player.isExecuted()) executedBits |= bit;
+            if (player.isBot()) botBits |= bit;
+            if (player.isPresident()) presidentBits |= bit;
+            if (player.isChancellor()) chancellorBits |= bit;
+            Boolean vote = votes.get(player.getName());
+            if (vote != null) {
+                votedBits |= bit;
+                if (vote) votedJaBits |= bit;
+            }
+            if (Boolean.TRUE.equals(readyStatus.get(player.getName()))) readyBits |= bit;
+        }
+        alive = (short) aliveBits;
+        executed = (short) executedBits;
+        bots = (short) botBits;
+        presidentFlags = (short) presidentBits;
+        chancellorFlags = (short) chancellorBits;
+        voted = (short) votedBits;
+        votedJa = (short) votedJaBits;
+        ready = (short) readyBits;
+
+        deck = packCards(game.getPolicyDeck());
+        deckSize = (byte) game.getPolicyDeck().size();
+        discardPile = packCards(game.getDiscardPile());
+        discardPileSize = (byte) game.getDiscardPile().size();
+        presidentHand = packCards(game.getPresidentHand());
+        presidentHandSize = (byte) game.getPresidentHand().size();
+        chancellorHand = packCards(game.getChancellorHand());
+        chancellorHandSize = (byte) game.getChancellorHand().size();
+
+        liberalPolicies = (byte) game.getLiberalPolicies();
+        fascistPolicies = (byte) game.getFascistPolicies();
+        electionTracker = (byte) game.getElectionTracker();
+        phase = (byte) game.getCurrentPhase().ordinal();
+        currentPresidentIndex = (byte) game.getCurrentPresidentIndex();
+        nominatedChancellor = seatOf(game.getNominatedChancellor());
+        lastChancellor = seatOf(game.getLastChancellorName());
+        lastPresident = seatOf(game.getLastPresidentName());
+        executiveActionTarget = seatOf(game.getExecutiveActionTarget());
+        executiveAction = (byte) indexOf(EXECUTIVE_ACTIONS, game.getExecutiveActionAvailable(), "executive action");
+        winner = (byte) indexOf(WINNERS, game.getWinner(), "winner");
+
+        GameRules rules = game.getRules();
+        flags = 0;
+        if (game.isGameStarted()) flags |= GAME_STARTED;
+        if (rules.isShowRoleOnDeath()) flags |= SHOW_ROLE_ON_DEATH;
+        if (rules.isAllowVeto()) flags |= ALLOW_VETO;
+        if (rules.isSpecialElectionRules()) flags |= SPECIAL_ELECTION_RULES;
+
+        seed = game.getSeed();
+        randomState = game.getRandom().getState();
+        botRandomState = game.getBotRandom().getState();
+    }
+
+    /** Copies another encoding into this one, e.g. to branch a search without allocating. */
+    public void copyFrom(CompactGameState other) {
+        gameId = other.gameId;
+        hostName = other.hostName;
+        names = other.names;
+        playerCount = other.playerCount;
+        roles = other.roles;
+        alive = other.alive;
+        executed = other.executed;
+        bots = other.bots;
+        presidentFlags = other.presidentFlags;
+        chancellorFlags = other.chancellorFlags;
+        voted = other.voted;
+        votedJa = other.votedJa;
+        ready = other.ready;
+        deck = other.deck;
+        discardPile = other.discardPile;
+        presidentHand = other.presidentHand;
+        chancellorHand = other.chancellorHand;
+        deckSize = other.deckSize;
+        discardPileSize = other.discardPileSize;
+        presidentHandSize = other.presidentHandSize;
+        chancellorHandSize = other.chancellorHandSize;
+        liberalPolicies = other.liberalPolicies;
+        fascistPolicies = other.fascistPolicies;
+        electionTracker = other.electionTracker;
+        phase = other.phase;
+        currentPresidentIndex = other.currentPresidentIndex;
+        nominatedChancellor = other.nominatedChancellor;
+        lastChancellor = other.lastChancellor;
+        lastPresident = other.lastPresident;
+        executiveActionTarget = other.executiveActionTarget;
+        executiveAction = other.executiveAction;
+        winner = other.winner;
+        flags = other.flags;
+        seed = other.seed;
+        randomState = other.randomState;
+        botRandomState = other.botRandomState;
+    }
+
+    /** Builds a new Game in this state. Players get their default profile. */
+    public Game toGame() {
+        Game game = new Game(gameId, seed);
+        game.setHostName(hostName);
+        for (int i = 0; i < playerCount; i++) {
+            Player player = new Player(names[i]);
+            player.setBot(isBot(i));
+            if (player.isBot()) {
+                player.setBotDifficulty("medium");
+            }
+            game.addPlayer(player);
+        }
+        applyTo(game);
+        return game;
+    }
+
+    /**
+     * Writes this state into a game with the same seats, keeping its chat, images and
+     * player profiles.
+     */
+    public void applyTo(Game game) {
+        if (!sameSeats(game.getPlayers())) {
+            throw new IllegalArgumentException("Game " + game.getGameId() + " does not have the encoded seats");
+        }
+        Map<String, Boolean> votes = new HashMap<>();
+        Map<String, Boolean> readyStatus = new HashMap<>();
+        for (int i = 0; i < playerCount; i++) {
+            Player player = game.getPlayers().get(i);
+            player.setRole(getRole(i));
+            game.setAlive(player, isAlive(i));
+            player.setExecuted(isExecuted(i));
+            player.setBot(isBot(i));
+            player.setPresident((presidentFlags & (1 << i)) != 0);
+            player.setChancellor((chancellorFlags & (1 << i)) != 0);
+            player.setVote(hasVoted(i) ? (Boolean) votedJa(i) : null);
+            if (hasVoted(i)) {
+                votes.put(names[i], votedJa(i));
+            }
+            if (isReady(i)) {
+                readyStatus.put(names[i], true);
+            }
+        }
+        game.setVotes(votes);
+        game.setReadyStatus(readyStatus);
+
+        unpackCards(deck, deckSize, game.getPolicyDeck());
+        unpackCards(discardPile, discardPileSize, game.getDiscardPile());
+        unpackCards(presidentHand, presidentHandSize, game.getPresidentHand());
+        unpackCards(chancellorHand, chancellorHandSize, game.getChancellorHand());
+
+        game.setLiberalPolicies(liberalPolicies);
+        game.setFascistPolicies(fascistPolicies);
+        game.setElectionTracker(electionTracker);
+        game.setCurrentPhase(PHASES[phase]);
+        game.setCurrentPresidentIndex(currentPresidentIndex);
+        game.setNominatedChancellor(nameAt(nominatedChancellor));
+        game.setLastChancellorName(nameAt(lastChancellor));
+        game.setLastPresidentName(nameAt(lastPresident));
+        game.setExecutiveActionTarget(nameAt(executiveActionTarget));
+        game.setExecutiveActionAvailable(EXECUTIVE_ACTIONS[executiveAction]);
+        game.setWinner(WINNERS[winner]);
+        game.setGameStarted((flags & GAME_STARTED) != 0);
+        game.setRules(new GameRules((flags & SHOW_ROLE_ON_DEATH) != 0,
+                (flags & ALLOW_VETO) != 0, (flags & SPECIAL_ELECTION_RULES) != 0));
+        game.setHostName(hostName);
+        game.setSeed(seed);
+        game.getRandom().setState(randomState);
+        game.getBotRandom().setState(botRandomState);
+        game.touch();
+    }
+
+    public void write(DataOutput out) throws IOException {
+        writeNullable(out, gameId);
+        writeNullable(out, hostName);
+        out.writeByte(playerCount);
+        for (int i = 0; i < playerCount; i++) {
+            out.writeUTF(names[i]);
+        }
+        out.writeInt(roles);
+        out.writeShort(alive);
+        out.writeShort(executed);
+        out.writeShort(bots);
+        out.writeShort(presidentFlags);
+        out.writeShort(chancellorFlags);
+        out.writeShort(voted);
+        out.writeShort(votedJa);
+        out.writeShort(ready);
+        out.writeLong(deck);
+        out.writeLong(discardPile);
+        out.writeLong(presidentHand);
+        out.writeLong(chancellorHand);
+        out.writeByte(deckSize);
+        out.writeByte(discardPileSize);
+        out.writeByte(presidentHandSize);
+        out.writeByte(chancellorHandSize);
+        out.writeByte(liberalPolicies);
+        out.writeByte(fascistPolicies);
+        out.writeByte(electionTracker);
+        out.writeByte(phase);
+        out.writeByte(currentPresidentIndex);
+        out.writeByte(nominatedChancellor);
+        out.writeByte(lastChancellor);
+        out.writeByte(lastPresident);
+        out.writeByte(executiveActionTarget);
+        out.writeByte(executiveAction);
+        out.writeByte(winner);
+        out.writeByte(flags);
+        out.writeLong(seed);
+        out.writeLong(randomState);
+        out.writeLong(botRandomState);
+    }
+
+    public static CompactGameState read(DataInput in) throws IOException {
+        CompactGameState state = new CompactGameState();
+        state.gameId = readNullable(in);
+        state.hostName = readNullable(in);
+        state.playerCount = in.readByte();
+        if (state.playerCount < 0 || state.playerCount > MAX_PLAYERS) {
+            throw new IOException("Invalid player count " + state.playerCount);
+        }
+        state.names = new String[state.playerCount];
+        for (int i = 0; i < state.playerCount; i++) {
+            state.names[i] = in.readUTF();
+        }
+        state.roles = in.readInt();
+        state.alive = in.readShort();
+        state.executed = in.readShort();
+        state.bots = in.readShort();
+        state.presidentFlags = in.readShort();
+        state.chancellorFlags = in.readShort();
+        state.voted = in.readShort();
+        state.votedJa = in.readShort();
+        state.ready = in.readShort();
+        state.deck = in.readLong();
+        state.discardPile = in.readLong();
+        state.presidentHand = in.readLong();
+        state.chancellorHand = in.readLong();
+        state.deckSize = in.readByte();
+        state.discardPileSize = in.readByte();
+        state.presidentHandSize = in.readByte();
+        state.chancellorHandSize = in.readByte();
+        state.liberalPolicies = in.readByte();
+        state.fascistPolicies = in.readByte();
+        state.electionTracker = in.readByte();
+        state.phase = in.readByte();
+        state.currentPresidentIndex = in.readByte();
+        state.nominatedChancellor = in.readByte();
+        state.lastChancellor = in.readByte();
+        state.lastPresident = in.readByte();
+        state.executiveActionTarget = in.readByte();
+        state.executiveAction = in.readByte();
+        state.winner = in.readByte();
+        state.flags = in.readByte();
+        state.seed = in.readLong();
+        state.randomState = in.readLong();
+        state.botRandomState = in.readLong();
+        return state;
+    }
+
+    public String getName(int seat) {
+        return names[seat];
+    }
+
+    public Role getRole(int seat) {
+        return ROLES[(roles >>> (seat * ROLE_BITS)) & ROLE_MASK];
+    }
+
+    public boolean isAlive(int seat) {
+        return (alive & (1 << seat)) != 0;
+    }
+
+    public boolean isExecuted(int seat) {
+        return (executed & (1 << seat)) != 0;
+    }
+
+    public boolean isBot(int seat) {
+        return (bots & (1 << seat)) != 0;
+    }
+
+    public boolean hasVoted(int seat) {
+        return (voted & (1 << seat)) != 0;
+    }
+
+    public boolean votedJa(int seat) {
+        return (votedJa & (1 << seat)) != 0;
+    }
+
+    public boolean isReady(int seat) {
+        return (ready & (1 << seat)) != 0;
+    }
+
+    public Phase getCurrentPhase() {
+        return PHASES[phase];
+    }
+
+    /** Type of the card at the given index of the draw pile (0 = next to be drawn). */
+    public PolicyType getDeckCard(int index) {
+        return cardAt(deck, index);
+    }
+
+    public int getAliveCount() {
+        return Integer.bitCount(alive);
+    }
+
+    private boolean sameSeats(List<Player> players) {
+        if (players.size() != names.length) {
+            return false;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (!names[i].equals(players.get(i).getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte seatOf(String name) {
+        if (name == null) {
+            return -1;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return (byte) i;
+            }
+        }
+        throw new IllegalArgumentException("Player " + name + " is not seated in game " + gameId);
+    }
+
+    private String nameAt(byte seat) {
+        return seat < 0 ? null : names[seat];
+    }
+
+    private static void writeNullable(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static int roleCode(Role role) {
+        return role == null ? 0 : indexOf(ROLES, role, "role");
+    }
+
+    private static <T> int indexOf(T[] values, T value, String what) {
+        if (value == null) {
+            return 0;
+        }
+        for (int i = 1; i < values.length; i++) {
+            if (values[i].equals(value)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Cannot encode " + what + " " + value);
+    }
+
+    private static long packCards(PolicyDeck cards) {
+        if (cards.size() > MAX_CARDS) {
+            throw new IllegalArgumentException("At most " + MAX_CARDS + " cards can be encoded");
+        }
+        long bits = 0;
+        for (int i = 0; i < cards.size(); i++) {
+            if (cards.typeAt(i) == PolicyType.FASCIST) {
+                bits |= 1L << i;
+            }
+        }
+        return bits;
+    }
+
+    private static void unpackCards(long bits, int size, PolicyDeck cards) {
+        cards.clear();
+        for (int i = 0; i < size; i++) {
+            cards.add(Policy.of(cardAt(bits, i)));
+        }
+    }
+
+    private static PolicyType cardAt(long bits, int index) {
+        return (bits & (1L << index)) != 0 ? PolicyType.FASCIST : PolicyType.LIBERAL;
+    }
+}
@@ -1,22 +1,35 @@
 package com.secrethitler.models;
 
+import com.secrethitler.journal.GameJournal;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.AllArgsConstructor;
-import lombok.NoArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 @Data
 @AllArgsConstructor
-@NoArgsConstructor
 public class Game {
+    public static final int CHAT_CAPACITY = 100;
+
     private String gameId;
-    private List<Player> players = new ArrayList<>();
-    private List<Policy> policyDeck = new ArrayList<>();
-    private List<Policy> discardPile = new ArrayList<>();
+    // Changed only through addPlayer, removePlayer and setAlive, which keep seatIndex in step
+    @Getter(AccessLevel.NONE)
+    private final List<Player> players = new ArrayList<>();
+    private PolicyDeck policyDeck = new PolicyDeck();
+    private PolicyDeck discardPile = new PolicyDeck();
     private int liberalPolicies = 0;
     private int fascistPolicies = 0;
     private int electionTracker = 0;
@@ -26,73 +39,228 @@ public class Game {
     private String lastPresidentName;
     private String nominatedChancellor;
     private Map<String, Boolean> votes = new HashMap<>(); // player_name -> vote
-    private List<Policy> presidentHand = new ArrayList<>();
-    private List<Policy> chancellorHand = new ArrayList<>();
+    private PolicyDeck presidentHand = new PolicyDeck();
+    private PolicyDeck chancellorHand = new PolicyDeck();
     private String executiveActionAvailable; // Type of action available
     private String executiveActionTarget; // Target of executive action
     private String winner; // "Liberal" or "Fascist"
     private boolean gameStarted = false;
     private GameRules rules = new GameRules();
     private Map<String, Boolean> readyStatus = new HashMap<>(); // player_name -> ready
-    private List<ChatMessage> chatHistory = new ArrayList<>(); // Last N chat messages
     private String hostName; // Player who created the game
     private String customCardImageUrl; // Custom card image URL
     private String customBoardImageUrl; // Custom board image URL
 
+    // Seed of both generators below, so the same seed and commands give the same game.
+    // Never sent to clients: it would reveal the roles and the deck order.
+    @Setter(AccessLevel.NONE)
+    private long seed;
+
+    // Shuffles and president picks; only used on the game's command queue
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final transient GameRandom random = new GameRandom(0);
+
+    // Bot decisions draw from their own stream, so whether a seat is played by a bot
+    // or a human does not shift the engine's shuffles
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final transient GameRandom botRandom = new GameRandom(0);
+
+    // Bumped by touch() on every mutation; cached projections are tied to it
+    @Setter(AccessLevel.NONE)
+    private volatile long stateVersion = 0;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient volatile PublicState publicState;
+
+    // Event log the engine records accepted commands to; null when the game is not journaled
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient GameJournal journal;
+
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final transient List<Player> playersView = Collections.unmodifiableList(players);
+
+    // Seat lookups, updated by every change to the seats or to who is alive
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final transient SeatIndex seatIndex = new SeatIndex();
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final transient List<Player> alivePlayers = new AlivePlayers();
+
+    // Last CHAT_CAPACITY messages; not part of toDict, so chatting never touch()es the game
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final ChatLog chatLog = new ChatLog(CHAT_CAPACITY);
+
+    public Game() {
+        this(null);
+    }
+
     public Game(String gameId) {
+        this(gameId, ThreadLocalRandom.current().nextLong());
+    }
+
+    public Game(String gameId, long seed) {
         this.gameId = gameId;
+        reseed(seed);
+    }
+
+    /** Records the seed and restarts both generators from it. */
+    public void setSeed(long seed) {
+        reseed(seed);
+    }
+
+    private void reseed(long seed) {
+        this.seed = seed;
+        random.setState(seed);
+        botRandom.setState(new GameRandom(~seed).nextLong());
+    }
+
+    /** Read-only view of the players in seat order; seats change through the methods below. */
+    public List<Player> getPlayers() {
+        return playersView;
+    }
+
+    /** Seats the player after the others. */
+    public void addPlayer(Player player) {
+        players.add(player);
+        seatIndex.add(players);
+    }
+
+    /** Removes the player with this name; the players after them move up a seat. */
+    public boolean removePlayer(String name) {
+        if (!players.removeIf(p -> p.getName().equals(name))) {
+            return false;
+        }
+        seatIndex.rebuild(players);
+        return true;
+    }
+
+    /** Sets whether a seated player is alive, keeping the alive seats in step. */
+    public void setAlive(Player player, boolean alive) {
+        player.setAlive(alive);
+        seatIndex.refreshAlive(players);
     }
 
     public Player getPlayerByName(String name) {
-        return players.stream()
-                .filter(p -> p.getName().equals(name))
-                .findFirst()
-                .orElse(null);
+        if (name == null) {
+            return null;
+        }
+        int seat = seatIndex.seatOf(name);
+        return seat < 0 ? null : players.get(seat);
     }
 
+    /**
+     * Read-only view of the alive players in seat order. It is not a copy: it always
+     * reflects the current state, and iterating it by index allocates nothing.
+     */
     public List<Player> getAlivePlayers() {
-        return players.stream()
-                .filter(Player::isAlive)
-                .collect(Collectors.toList());
+        return alivePlayers;
     }
 
     public Player getCurrentPresident() {
-        List<Player> alive = getAlivePlayers();
-        if (alive.isEmpty()) {
+        SeatIndex seats = seatIndex;
+        if (seats.aliveCount == 0) {
             return null;
         }
-        return alive.get(currentPresidentIndex % alive.size());
+        return players.get(seats.aliveSeats[currentPresidentIndex % seats.aliveCount]);
     }
 
+    /**
+     * Marks the state as changed so the next toDict call rebuilds the shared projection.
+     * Must be called after every mutation that is visible in toDict.
+     */
+    public void touch() {
+        stateVersion++;
+    }
+
+    /**
+     * Whether the viewer is shown this player's role: always their own, and fascists see
+     * every fascist and Hitler. Hitler sees nothing (doesn't know fascists).
+     */
+    boolean roleVisibleTo(Player viewer, Player player) {
+        return player == viewer || (viewer.getRole() == Role.FASCIST
+                && (player.getRole() == Role.FASCIST || player.getRole() == Role.HITLER));
+    }
+
+    /**
+     * The viewer's game state as maps, which state deltas are diffed against.
+     * GameStateView writes the same JSON without building them.
+     */
     public Map<String, Object> toDict(String playerName) {
+        PublicState shared = getPublicState();
         Player viewingPlayer = getPlayerByName(playerName);
-        boolean includeRole = false;
 
-        // Determine if this player should see roles
-        if (viewingPlayer != null && viewingPlayer.getRole() != null) {
-            if (viewingPlayer.getRole() == Role.FASCIST) {
-                // Fascists see all fascist roles
-                includeRole = true;
+        Map<String, Object> result = new HashMap<>(shared.state);
+
+        // Only the dicts that gain a role are copied; everything else is shared
+        if (viewingPlayer != null) {
+            List<Map<String, Object>> playersData = new ArrayList<>(shared.players);
+            for (int i = 0; i < shared.players.size() && i < players.size(); i++) {
+                Player p = players.get(i);
+                if (roleVisibleTo(viewingPlayer, p)) {
+                    Map<String, Object> playerDict = new HashMap<>(shared.players.get(i));
+                    playerDict.put("role", p.getRole() != null ? p.getRole().getValue() : null);
+                    playersData.set(i, playerDict);
+                }
             }
-            // Hitler sees nothing (doesn't know fascists)
+            result.put("players", playersData);
         }
 
-        List<Map<String, Object>> playersData = new ArrayList<>();
+        String currentPresident = (String) shared.state.get("current_president");
+        result.put("president_hand",
+            (playerName != null && playerName.equals(currentPresident))
+                ? presidentHand.stream().map(p -> p.getType().getValue()).collect(Collectors.toList())
+                : null);
+        result.put("chancellor_hand",
+            (playerName != null && nominatedChancellor != null && playerName.equals(nominatedChancellor))
+                ? chancellorHand.stream().map(p -> p.getType().getValue()).collect(Collectors.toList())
+                : null);
+
+        return result;
+    }
+
+    private PublicState getPublicState() {
+        // Read the version before building so a concurrent touch() always forces a rebuild
+        long version = stateVersion;
+        PublicState shared = publicState;
+        if (shared == null || shared.version != version) {
+            shared = buildPublicState(version);
+            publicState = shared;
+        }
+        return shared;
+    }
+
+    /**
+     * Builds everything in toDict that is identical for all viewers: roles and hands
+     * are left out and added per viewer. The collections are read-only because the
+     * same instance is handed to every viewer until the next touch().
+     */
+    private PublicState buildPublicState(long version) {
+        List<Map<String, Object>> playersData = new ArrayList<>(players.size());
         for (Player p : players) {
-            Map<String, Object> playerDict = p.toDict(false);
-            // Only show role to the player themselves or to fascists (if they're fascist/hitler)
-            if (playerName != null && playerName.equals(p.getName())) {
-                playerDict.put("role", p.getRole() != null ? p.getRole().getValue() : null);
-            } else if (includeRole && p.getRole() != null && 
-                      (p.getRole() == Role.FASCIST || p.getRole() == Role.HITLER)) {
-                playerDict.put("role", p.getRole().getValue());
-            }
-            playersData.add(playerDict);
+            playersData.add(Collections.unmodifiableMap(p.toDict(false)));
         }
+        playersData = Collections.unmodifiableList(playersData);
 
         Player currentPresident = getCurrentPresident();
         Map<String, Object> result = new HashMap<>();
         result.put("game_id", gameId);
+        result.put("state_version", version);
         result.put("players", playersData);
         result.put("liberal_policies", liberalPolicies);
         result.put("fascist_policies", fascistPolicies);
@@ -102,36 +270,132 @@ public class Game {
         result.put("nominated_chancellor", nominatedChancellor);
         result.put("last_chancellor_name", lastChancellorName);
         result.put("last_president_name", lastPresidentName);
-        result.put("votes", votes);
-        result.put("president_hand", 
-            (playerName != null && currentPresident != null && playerName.equals(currentPresident.getName())) 
-                ? presidentHand.stream().map(p -> p.getType().getValue()).collect(Collectors.toList())
-                : null);
-        result.put("chancellor_hand", 
-            (playerName != null && nominatedChancellor != null && playerName.equals(nominatedChancellor))
-                ? chancellorHand.stream().map(p -> p.getType().getValue()).collect(Collectors.toList())
-                : null);
+        result.put("votes", Collections.unmodifiableMap(new HashMap<>(votes)));
+        result.put("president_hand", null);
+        result.put("chancellor_hand", null);
         result.put("executive_action_available", executiveActionAvailable);
         result.put("executive_action_target", executiveActionTarget);
         result.put("winner", winner);
         result.put("game_started", gameStarted);
-        result.put("rules", rules);
-        result.put("ready_status", readyStatus);
-        result.put("chat_history", chatHistory.stream()
-            .map(msg -> {
-                Map<String, Object> msgMap = new HashMap<>();
-                msgMap.put("sender", msg.getSender());
-                msgMap.put("message", msg.getMessage());
-                msgMap.put("timestamp", msg.getTimestamp().toString());
-                msgMap.put("type", msg.getType().name());
-                return msgMap;
-            })
-            .collect(Collectors.toList()));
+        // Copied so a projection never changes after it was built
+        result.put("rules", new GameRules(rules.isShowRoleOnDeath(), rules.isAllowVeto(), rules.isSpecialElectionRules()));
+        result.put("ready_status", Collections.unmodifiableMap(new HashMap<>(readyStatus)));
         result.put("host_name", hostName);
         result.put("custom_card_image_url", customCardImageUrl);
         result.put("custom_board_image_url", customBoardImageUrl);
 
-        return result;
+        return new PublicState(version, Collections.unmodifiableMap(result), playersData);
+    }
+
+    private final class AlivePlayers extends AbstractList<Player> implements RandomAccess {
+        @Override
+        public Player get(int index) {
+            SeatIndex seats = seatIndex;
+            if (index < 0 || index >= seats.aliveCount) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return players.get(seats.aliveSeats[index]);
+        }
+
+        @Override
+        public int size() {
+            return seatIndex.aliveCount;
+        }
+    }
+
+    /**
+     * Open-addressing name -> seat table plus the seats of the alive players. A join
+     * adds one entry; a leave, which shifts the seats behind it, rebuilds the table,
+     * and an execution recomputes the alive seats. Votes, ready-ups and every other
+     * change leave it alone. Only used from the game's command queue, so no locking.
+     */
+    private static final class SeatIndex {
+        String[] names = new String[32];
+        int[] seats = new int[32];
+        int[] aliveSeats = new int[16];
+        int aliveCount;
+
+        /** Indexes the player just added in the last seat. */
+        void add(List<Player> players) {
+            int count = players.size();
+            if (count * 2 > names.length) {
+                rebuild(players);
+                return;
+            }
+            int seat = count - 1;
+            Player player = players.get(seat);
+            put(player.getName(), seat);
+            if (player.isAlive()) {
+                if (aliveCount == aliveSeats.length) {
+                    aliveSeats = Arrays.copyOf(aliveSeats, aliveSeats.length * 2);
+                }
+                aliveSeats[aliveCount++] = seat;
+            }
+        }
+
+        void rebuild(List<Player> players) {
+            int count = players.size();
+            if (count * 2 > names.length) {
+                names = new String[Integer.highestOneBit(count * 4)];
+                seats = new int[names.length];
+            } else {
+                Arrays.fill(names, null);
+            }
+            for (int seat = 0; seat < count; seat++) {
+                put(players.get(seat).getName(), seat);
+            }
+            refreshAlive(players);
+        }
+
+        void refreshAlive(List<Player> players) {
+            int count = players.size();
+            if (count > aliveSeats.length) {
+                aliveSeats = new int[count];
+            }
+            aliveCount = 0;
+            for (int seat = 0; seat < count; seat++) {
+                if (players.get(seat).isAlive()) {
+                    aliveSeats[aliveCount++] = seat;
+                }
+            }
+        }
+
+        private void put(String name, int seat) {
+            int mask = names.length - 1;
+            int slot = name.hashCode() & mask;
+            while (names[slot] != null && !names[slot].equals(name)) {
+                slot = (slot + 1) & mask;
+            }
+            // Keep the first seat for a duplicate name, as the linear search did
+            if (names[slot] == null) {
+                names[slot] = name;
+                seats[slot] = seat;
+            }
+        }
+
+        int seatOf(String name) {
+            int mask = names.length - 1;
+            int slot = name.hashCode() & mask;
+            while (names[slot] != null) {
+                if (names[slot].equals(name)) {
+                    return seats[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+    }
+
+    private static final class PublicState {
+        final long version;
+        final Map<String, Object> state;
+        final List<Map<String, Object>> players;
+
+        PublicState(long version, Map<String, Object> state, List<Map<String, Object>> players) {
+            this.version = version;
+            this.state = state;
+            this.players = players;
+        }
     }
 }
 
@@ -0,0 +1,36 @@
+package com.secrethitler.models;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * SplitMix64 generator owned by a single game.
+ *
+ * Same algorithm as SplittableRandom, but its whole state is one long that can be
+ * read and restored, so a snapshot of a game can carry on exactly where it left off.
+ * Not thread-safe: it is only used on the owning game's command queue.
+ */
+public final class GameRandom implements RandomGenerator {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long state;
+
+    public GameRandom(long seed) {
+        this.state = seed;
+    }
+
+    @Override
+    public long nextLong() {
+        long z = (state += GOLDEN_GAMMA);
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+}
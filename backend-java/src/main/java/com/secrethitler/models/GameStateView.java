@@ -0,0 +1,127 @@
+package com.secrethitler.models;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One viewer's game state, written field by field to the JsonGenerator.
+ *
+ * Serializes to the same JSON as Game.toDict(viewer) but reads the Game directly, so
+ * no maps are built and no beans are reflected on. Jackson picks it up wherever it
+ * appears in a payload. Like toDict it must be serialized on the game's command queue,
+ * before anything else changes the game.
+ */
+public record GameStateView(Game game, String viewer) implements JsonSerializable {
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        Player viewingPlayer = game.getPlayerByName(viewer);
+        Player currentPresident = game.getCurrentPresident();
+        String presidentName = currentPresident != null ? currentPresident.getName() : null;
+
+        gen.writeStartObject();
+        gen.writeStringField("game_id", game.getGameId());
+        gen.writeNumberField("state_version", game.getStateVersion());
+        gen.writeArrayFieldStart("players");
+        for (Player player : game.getPlayers()) {
+            writePlayer(gen, player, viewingPlayer);
+        }
+        gen.writeEndArray();
+        gen.writeNumberField("liberal_policies", game.getLiberalPolicies());
+        gen.writeNumberField("fascist_policies", game.getFascistPolicies());
+        gen.writeNumberField("election_tracker", game.getElectionTracker());
+        gen.writeStringField("current_phase", game.getCurrentPhase().getValue());
+        gen.writeStringField("current_president", presidentName);
+        gen.writeStringField("nominated_chancellor", game.getNominatedChancellor());
+        gen.writeStringField("last_chancellor_name", game.getLastChancellorName());
+        gen.writeStringField("last_president_name", game.getLastPresidentName());
+        writeFlags(gen, "votes", game.getVotes());
+        writeHand(gen, "president_hand", viewer != null && viewer.equals(presidentName)
+                ? game.getPresidentHand() : null);
+        writeHand(gen, "chancellor_hand", viewer != null && viewer.equals(game.getNominatedChancellor())
+                ? game.getChancellorHand() : null);
+        gen.writeStringField("executive_action_available", game.getExecutiveActionAvailable());
+        gen.writeStringField("executive_action_target", game.getExecutiveActionTarget());
+        gen.writeStringField("winner", game.getWinner());
+        gen.writeBooleanField("game_started", game.isGameStarted());
+        GameRules rules = game.getRules();
+        gen.writeObjectFieldStart("rules");
+        gen.writeBooleanField("showRoleOnDeath", rules.isShowRoleOnDeath());
+        gen.writeBooleanField("allowVeto", rules.isAllowVeto());
+        gen.writeBooleanField("specialElectionRules", rules.isSpecialElectionRules());
+        gen.writeEndObject();
+        writeFlags(gen, "ready_status", game.getReadyStatus());
+        gen.writeStringField("host_name", game.getHostName());
+        gen.writeStringField("custom_card_image_url", game.getCustomCardImageUrl());
+        gen.writeStringField("custom_board_image_url", game.getCustomBoardImageUrl());
+        gen.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers,
+                                  TypeSerializer typeSer) throws IOException {
+        serialize(gen, serializers);
+    }
+
+    /** Same fields as Player.toDict, plus the role where Game.roleVisibleTo allows it. */
+    private void writePlayer(JsonGenerator gen, Player player, Player viewingPlayer) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("name", player.getName());
+        gen.writeStringField("username", player.getUsername());
+        gen.writeStringField("profilePictureUrl", player.getProfilePictureUrl());
+        List<String> emotes = player.getSelectedEmotes();
+        if (emotes == null) {
+            gen.writeNullField("selectedEmotes");
+        } else {
+            gen.writeArrayFieldStart("selectedEmotes");
+            for (String emote : emotes) {
+                gen.writeString(emote);
+            }
+            gen.writeEndArray();
+        }
+        gen.writeBooleanField("is_alive", player.isAlive());
+        gen.writeBooleanField("is_president", player.isPresident());
+        gen.writeBooleanField("is_chancellor", player.isChancellor());
+        writeBoolean(gen, "vote", player.getVote());
+        gen.writeBooleanField("is_executed", player.isExecuted());
+        gen.writeBooleanField("is_bot", player.isBot());
+        if (viewingPlayer != null && game.roleVisibleTo(viewingPlayer, player)) {
+            gen.writeStringField("role", player.getRole() != null ? player.getRole().getValue() : null);
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeHand(JsonGenerator gen, String field, PolicyDeck hand) throws IOException {
+        if (hand == null) {
+            gen.writeNullField(field);
+            return;
+        }
+        gen.writeArrayFieldStart(field);
+        for (int i = 0; i < hand.size(); i++) {
+            gen.writeString(hand.typeAt(i).getValue());
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeFlags(JsonGenerator gen, String field, Map<String, Boolean> flags) throws IOException {
+        gen.writeObjectFieldStart(field);
+        for (Map.Entry<String, Boolean> entry : flags.entrySet()) {
+            writeBoolean(gen, entry.getKey(), entry.getValue());
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeBoolean(JsonGenerator gen, String field, Boolean value) throws IOException {
+        if (value == null) {
+            gen.writeNullField(field);
+        } else {
+            gen.writeBooleanField(field, value);
+        }
+    }
+}
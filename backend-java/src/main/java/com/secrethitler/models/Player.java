@@ -31,6 +31,14 @@ public class Player {
         this.username = name; // Default username to name
     }
 
+    /**
+     * Only for a player who is not seated yet. A seated player's game indexes the alive
+     * seats, so it is changed through Game.setAlive.
+     */
+    public void setAlive(boolean alive) {
+        this.isAlive = alive;
+    }
+
     public Map<String, Object> toDict(boolean includeRole) {
         Map<String, Object> data = new HashMap<>();
         data.put("name", name);
@@ -1,15 +1,22 @@
 package com.secrethitler.models;
 
-import lombok.Data;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
+/**
+ * A policy card. Cards carry nothing but their type, so there are exactly two
+ * shared, immutable instances; use {@link #of(PolicyType)}.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
 public class Policy {
-    private PolicyType type;
-    private int position = 0;
-}
+    public static final Policy LIBERAL = new Policy(PolicyType.LIBERAL);
+    public static final Policy FASCIST = new Policy(PolicyType.FASCIST);
 
+    PolicyType type;
 
+    public static Policy of(PolicyType type) {
+        return type == PolicyType.LIBERAL ? LIBERAL : FASCIST;
+    }
+}
@@ -0,0 +1,157 @@
+package com.secrethitler.models;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.random.RandomGenerator;
+
+/**
+ * Ordered pile of policy cards, used for the draw pile, the discard pile and the hands.
+ *
+ * Cards are stored as one byte each in a circular buffer, index 0 being the top
+ * card. Drawing from the top, adding to the bottom, peeking, moving a whole pile
+ * onto another and shuffling all work in place without allocating; get returns
+ * the shared Policy instances. It is a List so existing readers keep working.
+ */
+public class PolicyDeck extends AbstractList<Policy> implements RandomAccess {
+    private static final byte LIBERAL = 0;
+    private static final byte FASCIST = 1;
+
+    // Power of two so positions wrap with a mask; 17 cards fit without growing
+    private byte[] cards = new byte[32];
+    private int head;
+    private int size;
+
+    public PolicyDeck() {
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Policy get(int index) {
+        return Policy.of(typeAt(index));
+    }
+
+    /** Type of the card at the given position from the top, without removing it. */
+    public PolicyType typeAt(int index) {
+        checkIndex(index);
+        return cards[slot(index)] == FASCIST ? PolicyType.FASCIST : PolicyType.LIBERAL;
+    }
+
+    @Override
+    public Policy set(int index, Policy policy) {
+        Policy previous = get(index);
+        cards[slot(index)] = encode(policy);
+        modCount++;
+        return previous;
+    }
+
+    /** Puts a card at the bottom. */
+    @Override
+    public boolean add(Policy policy) {
+        addCard(encode(policy));
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, Policy policy) {
+        if (index == size) {
+            add(policy);
+            return;
+        }
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        addCard(cards[slot(size - 1)]);
+        for (int i = size - 2; i > index; i--) {
+            cards[slot(i)] = cards[slot(i - 1)];
+        }
+        cards[slot(index)] = encode(policy);
+        modCount++;
+    }
+
+    /** Takes the top card. */
+    public Policy draw() {
+        if (size == 0) {
+            throw new IllegalStateException("Deck is empty");
+        }
+        Policy top = get(0);
+        head = (head + 1) & (cards.length - 1);
+        size--;
+        modCount++;
+        return top;
+    }
+
+    @Override
+    public Policy remove(int index) {
+        if (index == 0) {
+            return draw();
+        }
+        Policy removed = get(index);
+        for (int i = index; i < size - 1; i++) {
+            cards[slot(i)] = cards[slot(i + 1)];
+        }
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        head = 0;
+        size = 0;
+        modCount++;
+    }
+
+    /** Moves every card of the other pile to the bottom of this one, leaving it empty. */
+    public void takeAll(PolicyDeck other) {
+        for (int i = 0; i < other.size; i++) {
+            addCard(other.cards[other.slot(i)]);
+        }
+        other.clear();
+        modCount++;
+    }
+
+    /** Fisher-Yates shuffle in place, drawing from the given generator like Collections.shuffle. */
+    public void shuffle(RandomGenerator random) {
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int a = slot(i);
+            int b = slot(j);
+            byte card = cards[a];
+            cards[a] = cards[b];
+            cards[b] = card;
+        }
+        modCount++;
+    }
+
+    private void addCard(byte card) {
+        if (size == cards.length) {
+            byte[] grown = new byte[cards.length * 2];
+            for (int i = 0; i < size; i++) {
+                grown[i] = cards[slot(i)];
+            }
+            cards = grown;
+            head = 0;
+        }
+        cards[slot(size)] = card;
+        size++;
+    }
+
+    private int slot(int index) {
+        return (head + index) & (cards.length - 1);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+    }
+
+    private static byte encode(Policy policy) {
+        return policy.getType() == PolicyType.FASCIST ? FASCIST : LIBERAL;
+    }
+}
@@ -1,97 +1,222 @@
 package com.secrethitler.service;
 
 import com.secrethitler.bot.BotAI;
-import com.secrethitler.engine.GameEngine;
 import com.secrethitler.models.*;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import com.secrethitler.websocket.ClientCommand;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Schedules bot turns.
+ *
+ * After every command the game is checked for a seat that has to act and is a bot
+ * (president, chancellor, voters, executive, or readying up). If there is one, a
+ * single timer task is armed for the game; it holds no thread while waiting and,
+ * when it fires, queues the turn on the game's command queue. The decision is
+ * made against the state at that moment and applied as the bot's own client
+ * action, so it goes through the same engine calls and broadcasts as a player's.
+ * At most one timer is pending per game, so the cost is per game, not per seat.
+ *
+ * The check only looks at the phase and the seats; BotAI, which draws from the
+ * game's bot generator, runs once per turn taken. So the draws depend on the moves
+ * made, not on how many chat or state requests arrived in between, and a seed
+ * replays the bot decisions of a game that has the same human moves.
+ */
 @Service
 public class BotService {
 
-    @Autowired
-    private GameService gameService;
-
-    @Async
-    public CompletableFuture<Void> processBotActions(Game game, String gameId) {
-        try {
-            Thread.sleep(1000); // Small delay to make bot actions feel natural
-
-            Phase phase = game.getCurrentPhase();
-            Player currentPresident = game.getCurrentPresident();
-
-            // Check if current president is a bot
-            if (currentPresident != null && currentPresident.isBot()) {
-                switch (phase) {
-                    case ELECTION:
-                        // Bot should nominate a chancellor
-                        String chancellorName = BotAI.decideChancellorNomination(game, currentPresident);
-                        if (chancellorName != null) {
-                            GameEngine.nominateChancellor(game, currentPresident.getName(), chancellorName);
-                        }
-                        break;
-                    case LEGISLATIVE:
-                        // Bot president should discard a policy
-                        if (!game.getPresidentHand().isEmpty()) {
-                            int discardIndex = BotAI.decidePolicyDiscard(game, currentPresident, game.getPresidentHand());
-                            GameEngine.presidentDiscardPolicy(game, currentPresident.getName(), discardIndex);
-                        }
-                        // Bot chancellor should enact a policy
-                        Player chancellor = game.getPlayerByName(game.getNominatedChancellor());
-                        if (chancellor != null && chancellor.isBot() && !game.getChancellorHand().isEmpty()) {
-                            int enactIndex = BotAI.decidePolicyEnact(game, chancellor, game.getChancellorHand());
-                            GameEngine.chancellorEnactPolicy(game, chancellor.getName(), enactIndex);
-                        }
-                        break;
-                    case EXECUTIVE:
-                        // Bot should execute executive action
-                        if (game.getExecutiveActionAvailable() != null) {
-                            String actionType = BotAI.decideExecutiveActionType(game, currentPresident, 
-                                game.getExecutiveActionAvailable());
-                            if (actionType != null) {
-                                String target = BotAI.decideExecutiveAction(game, currentPresident, actionType);
-                                if (target != null || actionType.equals("policy_peek")) {
-                                    GameEngine.executeExecutiveAction(game, currentPresident.getName(), actionType, target);
-                                }
-                            }
-                        }
-                        break;
-                }
+    /** A bot decision, as the same command a client would send. */
+    public record BotMove(String playerName, ClientCommand command) {
+    }
+
+    /** Applies a bot move as if the bot had sent it over its socket. */
+    @FunctionalInterface
+    public interface MoveHandler {
+        void apply(Game game, BotMove move);
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final GameCommandExecutor commandExecutor;
+    private final GameService gameService;
+    private final long delayMs;
+    private final long jitterMs;
+
+    // Only touched from the owning game's queue, so per game there is no race
+    private final Set<String> pendingTurns = ConcurrentHashMap.newKeySet();
+
+    public BotService(@Qualifier("botScheduler") ScheduledExecutorService scheduler,
+                      GameCommandExecutor commandExecutor,
+                      GameService gameService,
+                      @Value("${app.bots.delay-ms:1000}") long delayMs,
+                      @Value("${app.bots.delay-jitter-ms:500}") long jitterMs) {
+        this.scheduler = scheduler;
+        this.commandExecutor = commandExecutor;
+        this.gameService = gameService;
+        this.delayMs = delayMs;
+        this.jitterMs = jitterMs;
+    }
+
+    /**
+     * Arms a bot turn for the game if a bot has to act and none is pending.
+     * Must be called on the game's command queue.
+     */
+    public void scheduleTurn(Game game, MoveHandler handler) {
+        String gameId = game.getGameId();
+        if (pendingTurns.contains(gameId) || !isBotDue(game)) {
+            return;
+        }
+        long delay = delayMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+        pendingTurns.add(gameId);
+        scheduler.schedule(() -> {
+            if (gameService.getGame(gameId) != game) {
+                // Dropped while the timer was pending; do not bring its queue back
+                pendingTurns.remove(gameId);
+                return;
             }
+            commandExecutor.execute(gameId, () -> takeTurn(game, handler));
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void takeTurn(Game game, MoveHandler handler) {
+        pendingTurns.remove(game.getGameId());
+        if (gameService.getGame(game.getGameId()) != game) {
+            // Game was removed while the timer was pending
+            return;
+        }
+        // Decide on the current state: humans may have moved since the timer was armed
+        BotMove move = nextMove(game);
+        if (move != null) {
+            handler.apply(game, move);
+            scheduleTurn(game, handler);
+        }
+    }
 
-            // Check if any bot needs to vote
-            if (phase == Phase.VOTING) {
+    /**
+     * Whether some bot may have a move to make, without running BotAI. True whenever
+     * nextMove would return a move; the few states where the bot then has no legal
+     * choice, such as nobody left to nominate, are settled by nextMove without a draw.
+     */
+    public static boolean isBotDue(Game game) {
+        Phase phase = game.getCurrentPhase();
+        if (phase == Phase.LOBBY || phase == Phase.GAME_OVER) {
+            return false;
+        }
+        Player president = game.getCurrentPresident();
+        boolean botPresident = president != null && president.isBot();
+
+        switch (phase) {
+            case ELECTION:
+                if (botPresident) {
+                    return true;
+                }
+                break;
+            case VOTING:
                 for (Player player : game.getPlayers()) {
                     if (player.isBot() && player.isAlive() && player.getVote() == null) {
-                        boolean vote = BotAI.decideVote(game, player);
-                        GameEngine.castVote(game, player.getName(), vote);
-                        
-                        // Check if all votes are cast
-                        if (GameEngine.checkAllVotesCast(game)) {
-                            GameEngine.resolveElection(game);
-                        }
+                        return true;
                     }
                 }
-            }
+                break;
+            case LEGISLATIVE:
+                if (!game.getPresidentHand().isEmpty()) {
+                    if (botPresident) {
+                        return true;
+                    }
+                } else if (!game.getChancellorHand().isEmpty()) {
+                    Player chancellor = game.getPlayerByName(game.getNominatedChancellor());
+                    if (chancellor != null && chancellor.isBot()) {
+                        return true;
+                    }
+                }
+                break;
+            case EXECUTIVE:
+                if (botPresident && game.getExecutiveActionAvailable() != null) {
+                    return true;
+                }
+                break;
+            default:
+                break;
+        }
+        return unreadyBot(game) != null;
+    }
+
+    /** The next move some bot has to make in this game, or null if no bot is due. */
+    public static BotMove nextMove(Game game) {
+        Phase phase = game.getCurrentPhase();
+        if (phase == Phase.LOBBY || phase == Phase.GAME_OVER) {
+            return null;
+        }
+        Player president = game.getCurrentPresident();
+        boolean botPresident = president != null && president.isBot();
 
-            // Bots automatically mark ready
-            if (phase != Phase.LOBBY && phase != Phase.GAME_OVER) {
+        switch (phase) {
+            case ELECTION:
+                if (botPresident) {
+                    String chancellorName = BotAI.decideChancellorNomination(game, president);
+                    if (chancellorName != null) {
+                        return new BotMove(president.getName(), new ClientCommand.NominateChancellor(chancellorName));
+                    }
+                }
+                break;
+            case VOTING:
                 for (Player player : game.getPlayers()) {
-                    if (player.isBot() && player.isAlive()) {
-                        game.getReadyStatus().put(player.getName(), true);
+                    if (player.isBot() && player.isAlive() && player.getVote() == null) {
+                        return new BotMove(player.getName(), new ClientCommand.CastVote(BotAI.decideVote(game, player)));
                     }
                 }
-            }
+                break;
+            case LEGISLATIVE:
+                if (!game.getPresidentHand().isEmpty()) {
+                    if (botPresident) {
+                        int discardIndex = BotAI.decidePolicyDiscard(game, president, game.getPresidentHand());
+                        return new BotMove(president.getName(), new ClientCommand.PresidentDiscard(discardIndex));
+                    }
+                } else if (!game.getChancellorHand().isEmpty()) {
+                    Player chancellor = game.getPlayerByName(game.getNominatedChancellor());
+                    if (chancellor != null && chancellor.isBot()) {
+                        int enactIndex = BotAI.decidePolicyEnact(game, chancellor, game.getChancellorHand());
+                        return new BotMove(chancellor.getName(), new ClientCommand.ChancellorEnact(enactIndex));
+                    }
+                }
+                break;
+            case EXECUTIVE:
+                if (botPresident && game.getExecutiveActionAvailable() != null) {
+                    String actionType = BotAI.decideExecutiveActionType(game, president,
+                            game.getExecutiveActionAvailable());
+                    if (actionType != null) {
+                        String target = BotAI.decideExecutiveAction(game, president, actionType);
+                        if (target != null || actionType.equals("policy_peek")) {
+                            return new BotMove(president.getName(), new ClientCommand.ExecutiveAction(actionType, target));
+                        }
+                    }
+                }
+                break;
+            default:
+                break;
+        }
 
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        Player ready = unreadyBot(game);
+        return ready != null ? new BotMove(ready.getName(), new ClientCommand.Ready()) : null;
+    }
+
+    /** Bots ready up once a human is around to complete the round. */
+    private static Player unreadyBot(Game game) {
+        boolean humanAlive = game.getPlayers().stream().anyMatch(p -> p.isAlive() && !p.isBot());
+        if (humanAlive) {
+            for (Player player : game.getPlayers()) {
+                if (player.isBot() && player.isAlive()
+                        && !game.getReadyStatus().getOrDefault(player.getName(), false)) {
+                    return player;
+                }
+            }
         }
-        return CompletableFuture.completedFuture(null);
+        return null;
     }
 }
-
-
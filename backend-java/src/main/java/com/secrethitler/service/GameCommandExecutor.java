@@ -0,0 +1,122 @@
+package com.secrethitler.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Runs commands against a game on that game's own serial queue.
+ *
+ * Game and its collections are not thread-safe, so every read or write of a live
+ * game goes through here: commands for one game run strictly in submission order
+ * and never overlap, while queues of different games drain in parallel on the
+ * shared pool. There is no global lock and no thread is pinned to a game.
+ *
+ * A game leaving memory retires its queue rather than dropping it: the queue runs
+ * what is already in it and is unmapped only once it is empty. Adding a command and
+ * unmapping happen atomically, so a command arriving late either still runs on the
+ * old queue or starts a new one after the old one is done. Two queues of the same game
+ * never run at once. Commands look the game up when they run, so a command queued
+ * before a hibernation acts on the game loaded back from disk, not on the detached one.
+ */
+@Service
+public class GameCommandExecutor {
+    // Commands drained per turn before yielding the worker to other games
+    private static final int BATCH_SIZE = 64;
+
+    private final Executor pool;
+    private final Map<String, CommandQueue> queues = new ConcurrentHashMap<>();
+
+    public GameCommandExecutor(@Qualifier("gameCommandPool") Executor pool) {
+        this.pool = pool;
+    }
+
+    public void execute(String gameId, Runnable command) {
+        CommandQueue queue = queues.compute(gameId, (id, current) -> {
+            CommandQueue target = current != null ? current : new CommandQueue(id);
+            target.commands.add(command);
+            return target;
+        });
+        queue.schedule();
+    }
+
+    /** Runs the command on the game's queue and completes with its result. */
+    public <T> CompletableFuture<T> submit(String gameId, Supplier<T> command) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        execute(gameId, () -> {
+            try {
+                result.complete(command.get());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Unmaps the queue of a game that left memory once it has drained; commands already
+     * queued, and any that arrive first, still run on it. Called on the game's queue.
+     */
+    public void retire(String gameId) {
+        CommandQueue queue = queues.get(gameId);
+        if (queue != null) {
+            queue.retired = true;
+        }
+    }
+
+    private class CommandQueue implements Runnable {
+        private final String gameId;
+        private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean retired;
+
+        CommandQueue(String gameId) {
+            this.gameId = gameId;
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                pool.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    Runnable command = commands.poll();
+                    if (command == null) {
+                        break;
+                    }
+                    try {
+                        command.run();
+                    } catch (Throwable t) {
+                        t.printStackTrace();
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+                // A command may have arrived after the last poll but before the flag was cleared
+                if (!commands.isEmpty()) {
+                    schedule();
+                } else if (retired) {
+                    unmapIfDrained();
+                }
+            }
+        }
+
+        // Commands are only added inside queues.compute, so none can slip in between the check and the removal
+        private void unmapIfDrained() {
+            queues.computeIfPresent(gameId, (id, current) ->
+                    current == this && commands.isEmpty() ? null : current);
+        }
+    }
+}
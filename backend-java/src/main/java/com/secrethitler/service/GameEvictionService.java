@@ -0,0 +1,138 @@
+package com.secrethitler.service;
+
+import com.secrethitler.models.Game;
+import com.secrethitler.models.Phase;
+import com.secrethitler.websocket.SpectatorManager;
+import com.secrethitler.websocket.WebSocketManager;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drops games from memory once nobody needs them.
+ *
+ * Every app.games.eviction-interval-ms the sweep notes each game's stateVersion; a
+ * game is idle while that does not move and no player is connected (spectators do not
+ * count). Finished games are archived app.games.finished-ttl-ms after their last
+ * change, closing any sockets still open on them, spectators' included. Lobbies idle
+ * for app.games.idle-ttl-ms are archived as abandoned, and games in progress idle that
+ * long are hibernated to disk and loaded again by GameService.findGame when a player
+ * comes back.
+ */
+@Service
+public class GameEvictionService {
+    private static final CloseStatus ARCHIVED = CloseStatus.GOING_AWAY.withReason("Game archived");
+
+    private record Activity(long stateVersion, long since) {
+    }
+
+    private final GameService gameService;
+    private final GameCommandExecutor commandExecutor;
+    private final WebSocketManager connectionManager;
+    private final SpectatorManager spectators;
+    private final long intervalMs;
+    private final long finishedTtlMs;
+    private final long idleTtlMs;
+    private final ScheduledExecutorService scheduler;
+
+    // Last seen stateVersion of each game and since when it has not moved
+    private final Map<String, Activity> activity = new ConcurrentHashMap<>();
+
+    public GameEvictionService(GameService gameService,
+                               GameCommandExecutor commandExecutor,
+                               WebSocketManager connectionManager,
+                               SpectatorManager spectators,
+                               @Value("${app.games.eviction-interval-ms:60000}") long intervalMs,
+                               @Value("${app.games.finished-ttl-ms:600000}") long finishedTtlMs,
+                               @Value("${app.games.idle-ttl-ms:1800000}") long idleTtlMs) {
+        this.gameService = gameService;
+        this.commandExecutor = commandExecutor;
+        this.connectionManager = connectionManager;
+        this.spectators = spectators;
+        this.intervalMs = intervalMs;
+        this.finishedTtlMs = finishedTtlMs;
+        this.idleTtlMs = idleTtlMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        if (intervalMs > 0) {
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    sweep();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Queues the eviction of every game that has been idle past its TTL. */
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        activity.keySet().retainAll(gameService.getGames().keySet());
+        for (Game game : gameService.getGames().values()) {
+            String gameId = game.getGameId();
+            long version = game.getStateVersion();
+            boolean finished = game.getCurrentPhase() == Phase.GAME_OVER;
+            Activity last = activity.get(gameId);
+            if (last == null || last.stateVersion() != version
+                    || (!finished && connectionManager.hasConnections(gameId))) {
+                activity.put(gameId, new Activity(version, now));
+                continue;
+            }
+            long ttl = finished ? finishedTtlMs : idleTtlMs;
+            if (ttl > 0 && now - last.since() >= ttl) {
+                commandExecutor.execute(gameId, () -> evict(game, version));
+            }
+        }
+    }
+
+    /** Runs on the game's queue; does nothing if the game changed since the sweep looked at it. */
+    private void evict(Game game, long version) {
+        String gameId = game.getGameId();
+        if (gameService.getGame(gameId) != game || game.getStateVersion() != version) {
+            return;
+        }
+        Phase phase = game.getCurrentPhase();
+        if (phase != Phase.GAME_OVER && connectionManager.hasConnections(gameId)) {
+            return;
+        }
+        activity.remove(gameId);
+        try {
+            if (phase == Phase.GAME_OVER || phase == Phase.LOBBY) {
+                for (WebSocketSession session : connectionManager.removeGame(gameId)) {
+                    session.close(ARCHIVED);
+                }
+                for (WebSocketSession session : spectators.removeGame(gameId)) {
+                    session.close(ARCHIVED);
+                }
+                gameService.archiveGame(gameId);
+            } else {
+                gameService.hibernateGame(game);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -1,13 +1,35 @@
 package com.secrethitler.service;
 
+import com.secrethitler.journal.GameSnapshot;
 import com.secrethitler.models.Game;
 import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
 @Service
 public class GameService {
+    // Game ids are generated as short alphanumeric strings; anything else never names a file
+    private static final Pattern GAME_ID = Pattern.compile("[A-Za-z0-9-]{1,64}");
+
     private final Map<String, Game> games = new ConcurrentHashMap<>();
+    private final GameCommandExecutor commandExecutor;
+    private final JournalService journalService;
+
+    // Orders hibernation against rehydration, so a game is never both in memory and on disk
+    private final Object residencyLock = new Object();
+    private final AtomicLong archivedGames = new AtomicLong();
+    private final AtomicLong hibernatedGames = new AtomicLong();
+    private final AtomicLong rehydratedGames = new AtomicLong();
+
+    public GameService(GameCommandExecutor commandExecutor, JournalService journalService) {
+        this.commandExecutor = commandExecutor;
+        this.journalService = journalService;
+    }
 
     public Map<String, Game> getGames() {
         return games;
@@ -17,13 +39,86 @@ public class GameService {
         return games.get(gameId);
     }
 
+    /**
+     * Returns the game, loading it back into memory first if it was hibernated.
+     * Used where a player or client comes back to a game: connecting and fetching it.
+     */
+    public Game findGame(String gameId) {
+        Game game = games.get(gameId);
+        if (game != null || gameId == null || !GAME_ID.matcher(gameId).matches()) {
+            return game;
+        }
+        synchronized (residencyLock) {
+            game = games.get(gameId);
+            if (game != null) {
+                return game;
+            }
+            try {
+                game = journalService.rehydrate(gameId);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+            if (game != null) {
+                games.put(gameId, game);
+                rehydratedGames.incrementAndGet();
+            }
+            return game;
+        }
+    }
+
+    /** Registers a newly created game and starts its journal. */
     public void addGame(Game game) {
+        journalService.open(game);
+        games.put(game.getGameId(), game);
+    }
+
+    /** Registers a game rebuilt from disk at startup; its journal is attached by the caller. */
+    public void restore(Game game) {
         games.put(game.getGameId(), game);
     }
 
+    /** Must run on the game's queue, which is retired once the commands already in it are done. */
     public void removeGame(String gameId) {
-        games.remove(gameId);
+        Game game = games.remove(gameId);
+        commandExecutor.retire(gameId);
+        if (game != null) {
+            journalService.close(game);
+        }
+    }
+
+    /** Drops a finished or abandoned game for good; its journal goes to the archive. */
+    public void archiveGame(String gameId) {
+        if (games.containsKey(gameId)) {
+            removeGame(gameId);
+            archivedGames.incrementAndGet();
+        }
     }
-}
 
+    /**
+     * Writes an idle game to disk and drops it from memory until findGame asks for it.
+     * Must run on the game's queue. Returns false if the game is not journaled and stays.
+     */
+    public boolean hibernateGame(Game game) throws IOException {
+        GameSnapshot.Entry entry = GameSnapshot.capture(game);
+        if (entry == null) {
+            return false;
+        }
+        synchronized (residencyLock) {
+            journalService.hibernate(game, entry);
+            games.remove(game.getGameId(), game);
+        }
+        commandExecutor.retire(game.getGameId());
+        hibernatedGames.incrementAndGet();
+        return true;
+    }
 
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("live_games", games.size());
+        stats.put("archived_games", archivedGames.get());
+        stats.put("hibernated_games", hibernatedGames.get());
+        stats.put("rehydrated_games", rehydratedGames.get());
+        return stats;
+    }
+}
@@ -0,0 +1,318 @@
+package com.secrethitler.service;
+
+import com.secrethitler.journal.GameEvent;
+import com.secrethitler.journal.GameJournal;
+import com.secrethitler.journal.GameReplay;
+import com.secrethitler.journal.GameSnapshot;
+import com.secrethitler.models.Game;
+import com.secrethitler.models.Player;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Keeps one append-only journal file per game in app.journal.dir.
+ *
+ * Commands are recorded in memory on the game's queue; a single writer thread
+ * flushes the journals that have new entries every app.journal.flush-interval-ms,
+ * so a burst of commands reaches the disk as one write per game. All file access
+ * happens on that thread.
+ *
+ * Written entries are forced to disk in groups: after every flush when
+ * app.journal.fsync-interval-ms is 0, at most once per interval when it is positive,
+ * and only when a journal is closed or a snapshot is taken when it is negative.
+ * Journals of removed games are moved to the archive subdirectory and those of
+ * hibernated games, next to their snapshot, to the hibernated subdirectory, so the
+ * files left directly in app.journal.dir are the games that were live when the
+ * server stopped.
+ */
+@Service
+public class JournalService {
+    private final boolean enabled;
+    private final Path directory;
+    private final Map<String, GameJournal> journals = new ConcurrentHashMap<>();
+    private final Queue<GameJournal> dirty = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService writer;
+    private final long fsyncIntervalMs;
+
+    // Writer thread only
+    private final Set<GameJournal> unsynced = new LinkedHashSet<>();
+    private long lastSyncNanos = System.nanoTime();
+
+    public JournalService(@Value("${app.journal.enabled:true}") boolean enabled,
+                          @Value("${app.journal.dir:data/journal}") String directory,
+                          @Value("${app.journal.flush-interval-ms:10}") long flushIntervalMs,
+                          @Value("${app.journal.fsync-interval-ms:0}") long fsyncIntervalMs) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.fsyncIntervalMs = fsyncIntervalMs;
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled) {
+            writer.scheduleWithFixedDelay(this::flushDirty, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public Path journalFile(String gameId) {
+        return directory.resolve(gameId + ".journal");
+    }
+
+    /** Journal files of the games that were live when the server last stopped. */
+    public List<Path> journalFiles() throws IOException {
+        if (!enabled || !Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".journal")).toList();
+        }
+    }
+
+    /**
+     * Starts a fresh journal for a new game and attaches it. The game's seed and any
+     * players already seated (bots of a test game) are recorded first.
+     */
+    public void open(Game game) {
+        if (!enabled) {
+            return;
+        }
+        String gameId = game.getGameId();
+        Path file = journalFile(gameId);
+        try {
+            Files.createDirectories(directory);
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        GameJournal journal = new GameJournal(gameId, file, dirty::add);
+        journal.append(new GameEvent.Created(gameId, game.getSeed(), game.getHostName()));
+        for (Player player : game.getPlayers()) {
+            journal.append(new GameEvent.Joined(player.getName(), player.isBot()));
+        }
+        journals.put(gameId, journal);
+        game.setJournal(journal);
+    }
+
+    /**
+     * Attaches the existing journal file of a recovered game so new commands are appended
+     * to it. Anything past validLength is a torn write from the crash and is cut off.
+     */
+    public void resume(Game game, long eventCount, long validLength) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        String gameId = game.getGameId();
+        Path file = journalFile(gameId);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            if (channel.size() > validLength) {
+                channel.truncate(validLength);
+                channel.force(false);
+            }
+        }
+        GameJournal journal = new GameJournal(gameId, file, dirty::add, eventCount, validLength);
+        journals.put(gameId, journal);
+        game.setJournal(journal);
+    }
+
+    /**
+     * Detaches the journal of a removed game, closes its file once the last entries are
+     * written and moves it to the archive.
+     */
+    public void close(Game game) {
+        GameJournal journal = journals.remove(game.getGameId());
+        if (journal == null) {
+            return;
+        }
+        game.setJournal(null);
+        writer.execute(() -> {
+            try {
+                closeAndMove(journal, directory.resolve("archive"));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Detaches the journal of a game that is being dropped from memory and stores it with
+     * the game's snapshot entry in the hibernated subdirectory, for rehydrate to pick up.
+     * The entry must have been captured on the game's queue after its last command.
+     */
+    public void hibernate(Game game, GameSnapshot.Entry entry) {
+        GameJournal journal = journals.remove(game.getGameId());
+        if (journal == null) {
+            return;
+        }
+        game.setJournal(null);
+        writer.execute(() -> {
+            try {
+                Path hibernated = directory.resolve("hibernated");
+                closeAndMove(journal, hibernated);
+                GameSnapshot.writeFile(hibernated.resolve(game.getGameId() + ".snapshot"), List.of(entry));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Rebuilds a hibernated game and attaches its journal again, or returns null if the
+     * game was not hibernated. Runs after any hibernation still being written.
+     */
+    public Game rehydrate(String gameId) throws IOException {
+        if (!enabled) {
+            return null;
+        }
+        GameReplay.Recovered recovered;
+        try {
+            recovered = writer.submit(() -> {
+                Path hibernated = directory.resolve("hibernated");
+                Path snapshot = hibernated.resolve(gameId + ".snapshot");
+                Path journal = hibernated.resolve(gameId + ".journal");
+                if (!Files.exists(snapshot) || !Files.exists(journal)) {
+                    return null;
+                }
+                GameReplay.Recovered restored = GameReplay.recover(GameSnapshot.readFile(snapshot).get(gameId),
+                        ByteBuffer.wrap(Files.readAllBytes(journal)));
+                Files.move(journal, journalFile(gameId), StandardCopyOption.REPLACE_EXISTING);
+                Files.delete(snapshot);
+                return restored;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rehydrating " + gameId, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Could not rehydrate " + gameId, e.getCause());
+        }
+        if (recovered == null) {
+            return null;
+        }
+        resume(recovered.game(), recovered.journalEvents(), recovered.journalBytes());
+        return recovered.game();
+    }
+
+    private void closeAndMove(GameJournal journal, Path target) throws IOException {
+        unsynced.remove(journal);
+        journal.close();
+        Files.createDirectories(target);
+        Files.move(journal.getFile(), target.resolve(journal.getFile().getFileName()),
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Writes and forces every journal to disk, waiting until that is done. A snapshot
+     * calls this before it is written so it never refers to entries that could be lost.
+     */
+    public void syncAll() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        try {
+            writer.submit(() -> {
+                flushDirty();
+                syncUnsynced();
+                return null;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while syncing journals", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Could not sync journals", e.getCause());
+        }
+    }
+
+    /** Rebuilds a game from its journal file, after writing out anything still buffered. */
+    public Game replay(String gameId) throws IOException {
+        GameJournal journal = journals.get(gameId);
+        if (journal != null) {
+            try {
+                writer.submit(() -> journal.flush()).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while flushing journal of " + gameId, e);
+            } catch (ExecutionException e) {
+                throw new IOException("Could not flush journal of " + gameId, e.getCause());
+            }
+        }
+        return GameReplay.replay(journalFile(gameId));
+    }
+
+    private void flushDirty() {
+        GameJournal journal;
+        while ((journal = dirty.poll()) != null) {
+            try {
+                if (journal.flush() > 0) {
+                    unsynced.add(journal);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (fsyncIntervalMs == 0
+                || (fsyncIntervalMs > 0 && System.nanoTime() - lastSyncNanos >= fsyncIntervalMs * 1_000_000)) {
+            syncUnsynced();
+        }
+    }
+
+    private void syncUnsynced() {
+        for (GameJournal journal : unsynced) {
+            try {
+                journal.sync();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        unsynced.clear();
+        lastSyncNanos = System.nanoTime();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // The writer is stopped, so this thread now owns the files
+        for (GameJournal journal : journals.values()) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
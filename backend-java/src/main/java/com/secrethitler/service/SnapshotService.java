@@ -0,0 +1,171 @@
+package com.secrethitler.service;
+
+import com.secrethitler.journal.GameReplay;
+import com.secrethitler.journal.GameSnapshot;
+import com.secrethitler.models.Game;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically writes a snapshot of every live game to app.journal.dir/snapshot.bin
+ * and rebuilds the games from it when the server starts.
+ *
+ * Each game is captured on its own command queue together with the position of its
+ * journal, so the snapshot and the journal agree on which commands it includes. The
+ * journals are forced to disk before the snapshot is renamed into place. On startup
+ * every journal left in the directory belongs to a game that was still live: it is
+ * decoded from its snapshot entry and the journal entries after it are replayed, or
+ * replayed from the start when the snapshot has no usable entry for it.
+ */
+@Service
+public class SnapshotService {
+    private static final long CAPTURE_TIMEOUT_MS = 5000;
+
+    private final GameService gameService;
+    private final GameCommandExecutor commandExecutor;
+    private final JournalService journalService;
+    private final long intervalMs;
+    private final ScheduledExecutorService scheduler;
+
+    public SnapshotService(GameService gameService,
+                           GameCommandExecutor commandExecutor,
+                           JournalService journalService,
+                           @Value("${app.journal.snapshot-interval-ms:30000}") long intervalMs) {
+        this.gameService = gameService;
+        this.commandExecutor = commandExecutor;
+        this.journalService = journalService;
+        this.intervalMs = intervalMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Path snapshotFile() {
+        return journalService.getDirectory().resolve("snapshot.bin");
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!journalService.isEnabled()) {
+            return;
+        }
+        recover();
+        if (intervalMs > 0) {
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    snapshot();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Captures every live game and replaces the snapshot file. Returns the number of games written. */
+    public int snapshot() throws IOException {
+        List<CompletableFuture<GameSnapshot.Entry>> captures = new ArrayList<>();
+        for (String gameId : gameService.getGames().keySet()) {
+            captures.add(commandExecutor.submit(gameId, () -> capture(gameId)));
+        }
+        List<GameSnapshot.Entry> entries = new ArrayList<>(captures.size());
+        for (CompletableFuture<GameSnapshot.Entry> capture : captures) {
+            try {
+                GameSnapshot.Entry entry = capture.get(CAPTURE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while capturing games", e);
+            } catch (Exception e) {
+                // Left out: recovery replays that game's whole journal instead
+                e.printStackTrace();
+            }
+        }
+        journalService.syncAll();
+        Files.createDirectories(journalService.getDirectory());
+        GameSnapshot.writeFile(snapshotFile(), entries);
+        return entries.size();
+    }
+
+    /** Runs on the game's queue, so no command is half applied. */
+    private GameSnapshot.Entry capture(String gameId) {
+        Game game = gameService.getGame(gameId);
+        if (game == null) {
+            return null;
+        }
+        try {
+            return GameSnapshot.capture(game);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Rebuilds the games whose journals were left in the directory and reattaches their journals. */
+    public int recover() {
+        Map<String, GameSnapshot.Entry> snapshot;
+        try {
+            snapshot = GameSnapshot.readFile(snapshotFile());
+        } catch (IOException e) {
+            e.printStackTrace();
+            snapshot = Map.of();
+        }
+        List<Path> files;
+        try {
+            files = journalService.journalFiles();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return 0;
+        }
+
+        int count = 0;
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            String gameId = name.substring(0, name.length() - ".journal".length());
+            try {
+                ByteBuffer journal = ByteBuffer.wrap(Files.readAllBytes(file));
+                GameReplay.Recovered recovered = GameReplay.recover(snapshot.get(gameId), journal);
+                journalService.resume(recovered.game(), recovered.journalEvents(), recovered.journalBytes());
+                gameService.restore(recovered.game());
+                count++;
+            } catch (Exception e) {
+                System.err.println("Could not recover game " + gameId + " from " + file);
+                e.printStackTrace();
+            }
+        }
+        if (count > 0) {
+            System.out.println("Recovered " + count + " game(s) from " + journalService.getDirectory());
+        }
+        return count;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        if (!journalService.isEnabled()) {
+            return;
+        }
+        try {
+            snapshot();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.secrethitler.simulation;
+
+import com.secrethitler.bot.BotAI;
+import com.secrethitler.engine.GameEngine;
+import com.secrethitler.models.*;
+
+public class GameSimulator {
+    // Hard stop for games the engine cannot finish (e.g. deck exhausted)
+    private static final int MAX_STEPS = 2_000;
+
+    /**
+     * Plays one complete bot-vs-bot game synchronously and records the outcome into stats.
+     * No Spring context, sockets or sleeps are involved - every step goes straight
+     * through GameEngine with decisions from BotAI. The same seed plays the same game.
+     */
+    public static void playGame(int numPlayers, long seed, SimulationStats stats) {
+        Game game = GameEngine.createGame("SIM", seed);
+        for (int i = 1; i <= numPlayers; i++) {
+            GameEngine.addPlayer(game, "Bot " + i, true);
+        }
+        if (!GameEngine.startGame(game)) {
+            stats.recordStalled();
+            return;
+        }
+
+        int[] phaseSteps = new int[Phase.values().length];
+        int steps = 0;
+
+        while (game.getCurrentPhase() != Phase.GAME_OVER && steps < MAX_STEPS) {
+            Phase phase = game.getCurrentPhase();
+            if (!step(game)) {
+                break;
+            }
+            phaseSteps[phase.ordinal()]++;
+            steps++;
+        }
+
+        if (game.getCurrentPhase() != Phase.GAME_OVER || game.getWinner() == null) {
+            stats.recordStalled();
+            return;
+        }
+        stats.recordGame(numPlayers, game.getWinner(), steps, phaseSteps);
+    }
+
+    /**
+     * Performs the single action the current phase is waiting on.
+     * Returns false if the game cannot make progress.
+     */
+    public static boolean step(Game game) {
+        Player president = game.getCurrentPresident();
+        switch (game.getCurrentPhase()) {
+            case ELECTION: {
+                if (president == null) {
+                    return false;
+                }
+                String chancellorName = BotAI.decideChancellorNomination(game, president);
+                return chancellorName != null
+                        && GameEngine.nominateChancellor(game, president.getName(), chancellorName);
+            }
+            case VOTING: {
+                for (Player player : game.getAlivePlayers()) {
+                    if (player.getVote() == null) {
+                        GameEngine.castVote(game, player.getName(), BotAI.decideVote(game, player));
+                    }
+                }
+                return GameEngine.resolveElection(game);
+            }
+            case LEGISLATIVE: {
+                if (!game.getPresidentHand().isEmpty()) {
+                    if (president == null) {
+                        return false;
+                    }
+                    int discardIndex = BotAI.decidePolicyDiscard(game, president, game.getPresidentHand());
+                    return GameEngine.presidentDiscardPolicy(game, president.getName(), discardIndex);
+                }
+                Player chancellor = game.getPlayerByName(game.getNominatedChancellor());
+                if (chancellor == null || game.getChancellorHand().isEmpty()) {
+                    return false;
+                }
+                int enactIndex = BotAI.decidePolicyEnact(game, chancellor, game.getChancellorHand());
+                return GameEngine.chancellorEnactPolicy(game, chancellor.getName(), enactIndex);
+            }
+            case EXECUTIVE: {
+                if (president == null) {
+                    return false;
+                }
+                String actionType = BotAI.decideExecutiveActionType(game, president,
+                        game.getExecutiveActionAvailable());
+                if (actionType == null) {
+                    return false;
+                }
+                String target = BotAI.decideExecutiveAction(game, president, actionType);
+                return GameEngine.executeExecutiveAction(game, president.getName(), actionType, target);
+            }
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.secrethitler.simulation;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Headless entry point that plays bot-vs-bot games across all cores.
+ *
+ * Usage: SimulationRunner [--games N] [--players 5-10|0] [--threads T] [--seed S]
+ * With --players 0 (the default) the player count cycles through 5..10.
+ * Game i is seeded with S + i, so a run is reproducible whatever the thread count;
+ * without --seed a random S is picked and printed.
+ */
+public class SimulationRunner {
+    // Games per fork-join leaf; large enough to amortise task overhead
+    private static final int LEAF_SIZE = 1_024;
+
+    public static SimulationStats run(long games, int players, int threads, long seed) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new SimulationTask(0, games, players, seed));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static void main(String[] args) {
+        long games = 1_000_000;
+        int players = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = ThreadLocalRandom.current().nextLong();
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--games":
+                    games = Long.parseLong(args[i + 1]);
+                    break;
+                case "--players":
+                    players = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+        }
+        if (players != 0 && (players < 5 || players > 10)) {
+            System.err.println("--players must be between 5 and 10, or 0 for mixed");
+            System.exit(1);
+        }
+
+        System.out.printf("Simulating %,d games on %d threads (%s players, seed %d)%n", games, threads,
+                players == 0 ? "5-10" : String.valueOf(players), seed);
+
+        // Warm up the JIT so the reported rate reflects steady state
+        run(Math.min(games / 10, 50_000), players, threads, ~seed);
+
+        long start = System.nanoTime();
+        SimulationStats stats = run(games, players, threads, seed);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println();
+        System.out.print(stats.format(elapsed));
+    }
+
+    private static class SimulationTask extends RecursiveTask<SimulationStats> {
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+        private final int players;
+        private final long seed;
+
+        SimulationTask(long from, long to, int players, long seed) {
+            this.from = from;
+            this.to = to;
+            this.players = players;
+            this.seed = seed;
+        }
+
+        @Override
+        protected SimulationStats compute() {
+            if (to - from <= LEAF_SIZE) {
+                SimulationStats stats = new SimulationStats();
+                for (long i = from; i < to; i++) {
+                    int numPlayers = players != 0 ? players : 5 + (int) (i % 6);
+                    GameSimulator.playGame(numPlayers, seed + i, stats);
+                }
+                return stats;
+            }
+            long mid = (from + to) >>> 1;
+            SimulationTask left = new SimulationTask(from, mid, players, seed);
+            SimulationTask right = new SimulationTask(mid, to, players, seed);
+            left.fork();
+            return right.compute().merge(left.join());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.secrethitler.simulation;
+
+import com.secrethitler.models.Phase;
+
+/**
+ * Mutable, single-threaded accumulator for simulated games.
+ * Each worker fills its own instance and the results are combined with merge().
+ */
+public class SimulationStats {
+    // Histogram buckets; lengths at or above the last bucket are clamped into it
+    static final int MAX_BUCKET = 128;
+    private static final int MIN_PLAYERS = 5;
+    private static final int MAX_PLAYERS = 10;
+
+    private long games;
+    private long stalledGames;
+    private long totalSteps;
+    private final long[] gamesByPlayers = new long[MAX_PLAYERS + 1];
+    private final long[] liberalWinsByPlayers = new long[MAX_PLAYERS + 1];
+    private final long[] fascistWinsByPlayers = new long[MAX_PLAYERS + 1];
+    private final long[] stepHistogram = new long[MAX_BUCKET];
+    private final long[][] phaseHistograms = new long[Phase.values().length][MAX_BUCKET];
+
+    public void recordGame(int numPlayers, String winner, int steps, int[] phaseSteps) {
+        games++;
+        totalSteps += steps;
+        gamesByPlayers[numPlayers]++;
+        if ("Liberal".equals(winner)) {
+            liberalWinsByPlayers[numPlayers]++;
+        } else if ("Fascist".equals(winner)) {
+            fascistWinsByPlayers[numPlayers]++;
+        }
+        stepHistogram[Math.min(steps, MAX_BUCKET - 1)]++;
+        for (int i = 0; i < phaseSteps.length; i++) {
+            phaseHistograms[i][Math.min(phaseSteps[i], MAX_BUCKET - 1)]++;
+        }
+    }
+
+    public void recordStalled() {
+        stalledGames++;
+    }
+
+    public SimulationStats merge(SimulationStats other) {
+        games += other.games;
+        stalledGames += other.stalledGames;
+        totalSteps += other.totalSteps;
+        for (int i = 0; i <= MAX_PLAYERS; i++) {
+            gamesByPlayers[i] += other.gamesByPlayers[i];
+            liberalWinsByPlayers[i] += other.liberalWinsByPlayers[i];
+            fascistWinsByPlayers[i] += other.fascistWinsByPlayers[i];
+        }
+        for (int i = 0; i < MAX_BUCKET; i++) {
+            stepHistogram[i] += other.stepHistogram[i];
+        }
+        for (int p = 0; p < phaseHistograms.length; p++) {
+            for (int i = 0; i < MAX_BUCKET; i++) {
+                phaseHistograms[p][i] += other.phaseHistograms[p][i];
+            }
+        }
+        return this;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getStalledGames() {
+        return stalledGames;
+    }
+
+    public long getTotalSteps() {
+        return totalSteps;
+    }
+
+    public String format(long elapsedNanos) {
+        StringBuilder sb = new StringBuilder();
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        long finished = games + stalledGames;
+        sb.append(String.format("Games:          %,d (%,d stalled)%n", finished, stalledGames));
+        sb.append(String.format("Elapsed:        %.2f s%n", seconds));
+        sb.append(String.format("Throughput:     %,.0f games/s, %,.0f engine steps/s%n",
+                finished / seconds, totalSteps / seconds));
+
+        sb.append(String.format("%nWin rates%n"));
+        sb.append(String.format("  %-8s %12s %10s %10s%n", "players", "games", "liberal", "fascist"));
+        long liberalTotal = 0;
+        long fascistTotal = 0;
+        for (int n = MIN_PLAYERS; n <= MAX_PLAYERS; n++) {
+            liberalTotal += liberalWinsByPlayers[n];
+            fascistTotal += fascistWinsByPlayers[n];
+            if (gamesByPlayers[n] == 0) {
+                continue;
+            }
+            sb.append(String.format("  %-8d %,12d %9.2f%% %9.2f%%%n", n, gamesByPlayers[n],
+                    percent(liberalWinsByPlayers[n], gamesByPlayers[n]),
+                    percent(fascistWinsByPlayers[n], gamesByPlayers[n])));
+        }
+        sb.append(String.format("  %-8s %,12d %9.2f%% %9.2f%%%n", "all", games,
+                percent(liberalTotal, games), percent(fascistTotal, games)));
+
+        sb.append(String.format("%nLength distributions (mean / p50 / p90 / p99 / max)%n"));
+        appendHistogram(sb, "game steps", stepHistogram);
+        for (Phase phase : Phase.values()) {
+            if (phase == Phase.LOBBY || phase == Phase.GAME_OVER) {
+                continue;
+            }
+            appendHistogram(sb, phase.getValue().toLowerCase() + " steps", phaseHistograms[phase.ordinal()]);
+        }
+        return sb.toString();
+    }
+
+    private static void appendHistogram(StringBuilder sb, String label, long[] histogram) {
+        long count = 0;
+        long sum = 0;
+        int max = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            count += histogram[i];
+            sum += histogram[i] * i;
+            if (histogram[i] > 0) {
+                max = i;
+            }
+        }
+        if (count == 0) {
+            sb.append(String.format("  %-20s -%n", label));
+            return;
+        }
+        sb.append(String.format("  %-20s %6.2f / %3d / %3d / %3d / %3d%s%n", label, (double) sum / count,
+                percentile(histogram, count, 0.50), percentile(histogram, count, 0.90),
+                percentile(histogram, count, 0.99), max, max == MAX_BUCKET - 1 ? "+" : ""));
+    }
+
+    private static int percentile(long[] histogram, long count, double fraction) {
+        long threshold = (long) Math.ceil(count * fraction);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= threshold) {
+                return i;
+            }
+        }
+        return histogram.length - 1;
+    }
+
+    private static double percent(long part, long total) {
+        return total == 0 ? 0.0 : 100.0 * part / total;
+    }
+}
@@ -0,0 +1,183 @@
+package com.secrethitler.websocket;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token buckets that keep a flooding client from burning CPU for everyone else.
+ *
+ * Every connection has a bucket for raw frames, checked before the frame is parsed,
+ * and one bucket per action class; every game has one per action class shared by all
+ * its connections. Budgets are app.ratelimit.frames.* and app.ratelimit.{chat,state,game}.*
+ * (per second and burst, for a session and for a game). A frame over budget is
+ * dropped and counted, and the sender gets at most one rate_limited error per second.
+ * Checks are lock-free and run on the receiving thread, before anything is queued.
+ */
+@Component
+public class ActionRateLimiter {
+    public static final String ATTRIBUTE = "rateLimits";
+
+    private static final long NOTICE_INTERVAL_NANOS = 1_000_000_000L;
+
+    /** Actions grouped by what they cost the server, with their default budgets. */
+    public enum ActionClass {
+        /** chat_message: broadcast to the whole game and journaled. */
+        CHAT(2, 5, 10, 20),
+        /** get_game_state, enable_state_deltas, chat_history: a full projection or page per call. */
+        STATE(2, 5, 20, 40),
+        /** Game moves and everything else. */
+        GAME(20, 40, 100, 200);
+
+        private final Budget session;
+        private final Budget game;
+
+        ActionClass(double sessionPerSecond, int sessionBurst, double gamePerSecond, int gameBurst) {
+            this.session = new Budget(sessionPerSecond, sessionBurst);
+            this.game = new Budget(gamePerSecond, gameBurst);
+        }
+
+        public static ActionClass of(String action) {
+            if (action == null) {
+                return GAME;
+            }
+            return switch (action) {
+                case "chat_message" -> CHAT;
+                case "get_game_state", "enable_state_deltas", "chat_history" -> STATE;
+                default -> GAME;
+            };
+        }
+    }
+
+    private record Budget(double perSecond, int burst) {
+        TokenBucket newBucket() {
+            return new TokenBucket(perSecond, burst);
+        }
+    }
+
+    /** Buckets and flags of one connection, stored in its WebSocketSession attributes. */
+    public static final class SessionLimits {
+        private final TokenBucket frames;
+        private final Map<ActionClass, TokenBucket> actions;
+        private final AtomicLong lastNotice = new AtomicLong(System.nanoTime() - NOTICE_INTERVAL_NANOS);
+        private final AtomicBoolean stateRequestQueued = new AtomicBoolean();
+
+        private SessionLimits(TokenBucket frames, Map<ActionClass, TokenBucket> actions) {
+            this.frames = frames;
+            this.actions = actions;
+        }
+
+        /**
+         * Marks a get_game_state as queued; false if one already is, in which case the new
+         * request is answered by the queued one.
+         */
+        public boolean queueStateRequest() {
+            return stateRequestQueued.compareAndSet(false, true);
+        }
+
+        /** Called by the queued get_game_state before it builds the state. */
+        public void stateRequestRunning() {
+            stateRequestQueued.set(false);
+        }
+    }
+
+    private final boolean enabled;
+    private final Budget sessionFrames;
+    private final Map<ActionClass, Budget> sessionBudgets = new EnumMap<>(ActionClass.class);
+    private final Map<ActionClass, Budget> gameBudgets = new EnumMap<>(ActionClass.class);
+    private final Map<String, Map<ActionClass, TokenBucket>> gameBuckets = new ConcurrentHashMap<>();
+
+    private final LongAdder rejectedFrames = new LongAdder();
+    private final Map<ActionClass, LongAdder> rejectedActions = new EnumMap<>(ActionClass.class);
+    private final LongAdder coalescedStateRequests = new LongAdder();
+
+    public ActionRateLimiter(@Value("${app.ratelimit.enabled:true}") boolean enabled, Environment environment) {
+        this.enabled = enabled;
+        this.sessionFrames = budget(environment, "frames.session", new Budget(40, 80));
+        for (ActionClass actionClass : ActionClass.values()) {
+            String name = actionClass.name().toLowerCase(Locale.ROOT);
+            sessionBudgets.put(actionClass, budget(environment, name + ".session", actionClass.session));
+            gameBudgets.put(actionClass, budget(environment, name + ".game", actionClass.game));
+            rejectedActions.put(actionClass, new LongAdder());
+        }
+    }
+
+    private static Budget budget(Environment environment, String key, Budget defaults) {
+        return new Budget(
+                environment.getProperty("app.ratelimit." + key + "-per-second", Double.class, defaults.perSecond()),
+                environment.getProperty("app.ratelimit." + key + "-burst", Integer.class, defaults.burst()));
+    }
+
+    public SessionLimits newSession() {
+        Map<ActionClass, TokenBucket> actions = new EnumMap<>(ActionClass.class);
+        sessionBudgets.forEach((actionClass, budget) -> actions.put(actionClass, budget.newBucket()));
+        return new SessionLimits(sessionFrames.newBucket(), actions);
+    }
+
+    /** Checked for every frame before it is parsed. */
+    public boolean allowFrame(SessionLimits limits) {
+        if (!enabled || limits == null) {
+            return true;
+        }
+        if (limits.frames.tryAcquire(System.nanoTime())) {
+            return true;
+        }
+        rejectedFrames.increment();
+        return false;
+    }
+
+    /** Checked once the action is known: the connection's budget, then the game's. */
+    public boolean allowAction(SessionLimits limits, String gameId, ActionClass actionClass) {
+        if (!enabled || limits == null) {
+            return true;
+        }
+        long now = System.nanoTime();
+        Map<ActionClass, TokenBucket> game = gameBuckets.get(gameId);
+        if (game == null) {
+            game = gameBuckets.computeIfAbsent(gameId, id -> {
+                Map<ActionClass, TokenBucket> buckets = new EnumMap<>(ActionClass.class);
+                gameBudgets.forEach((c, budget) -> buckets.put(c, budget.newBucket()));
+                return buckets;
+            });
+        }
+        if (limits.actions.get(actionClass).tryAcquire(now) && game.get(actionClass).tryAcquire(now)) {
+            return true;
+        }
+        rejectedActions.get(actionClass).increment();
+        return false;
+    }
+
+    public void stateRequestCoalesced() {
+        coalescedStateRequests.increment();
+    }
+
+    /** Whether the connection should be told it is throttled; true at most once per second. */
+    public boolean shouldNotify(SessionLimits limits) {
+        long now = System.nanoTime();
+        long last = limits.lastNotice.get();
+        return now - last >= NOTICE_INTERVAL_NANOS && limits.lastNotice.compareAndSet(last, now);
+    }
+
+    /** Drops the shared buckets of a game nobody is connected to any more. */
+    public void forgetGame(String gameId) {
+        gameBuckets.remove(gameId);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rejected_frames", rejectedFrames.sum());
+        rejectedActions.forEach((actionClass, count) ->
+                stats.put("rejected_" + actionClass.name().toLowerCase(Locale.ROOT) + "_actions", count.sum()));
+        stats.put("coalesced_state_requests", coalescedStateRequests.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,97 @@
+package com.secrethitler.websocket;
+
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The connections of one game, as an array that broadcasts iterate directly.
+ *
+ * Every game event fans out over this array, while connects and disconnects are rare,
+ * so the group is copy-on-write: a connect or disconnect builds a new array and a new
+ * player name to member map under the lock and publishes both at once, and readers take
+ * whatever is current without locking or copying. Each member carries the player name
+ * it connected as, so sending a player their own view needs no lookup, and a reply to
+ * one player is a single map lookup. Members are not checked for being open: a closed
+ * connection's outbound queue drops what is sent to it until its disconnect runs.
+ */
+public final class BroadcastGroup {
+
+    /** One connected player. */
+    public record Member(String playerName, WebSocketSession session) {
+    }
+
+    static final Member[] NONE = new Member[0];
+
+    /** The members in connection order and by player name; never modified once published. */
+    private record Snapshot(Member[] members, Map<String, Member> byName) {
+    }
+
+    private static final Snapshot EMPTY = new Snapshot(NONE, Map.of());
+
+    private volatile Snapshot snapshot = EMPTY;
+
+    /** Current members; the array is never modified, callers must not modify it either. */
+    public Member[] members() {
+        return snapshot.members();
+    }
+
+    public WebSocketSession session(String playerName) {
+        Member member = snapshot.byName().get(playerName);
+        return member != null ? member.session() : null;
+    }
+
+    public boolean isEmpty() {
+        return snapshot.members().length == 0;
+    }
+
+    /** Binds the player to this session, replacing an earlier connection of the same player. */
+    synchronized void put(String playerName, WebSocketSession session) {
+        Snapshot current = snapshot;
+        Member member = new Member(playerName, session);
+        Member previous = current.byName().get(playerName);
+        Member[] members;
+        if (previous != null) {
+            members = current.members().clone();
+            members[indexOf(members, previous)] = member;
+        } else {
+            members = Arrays.copyOf(current.members(), current.members().length + 1);
+            members[members.length - 1] = member;
+        }
+        Map<String, Member> byName = new HashMap<>(current.byName());
+        byName.put(playerName, member);
+        snapshot = new Snapshot(members, byName);
+    }
+
+    /** Removes the player, but only while still bound to this session, so a quick reconnect survives. */
+    synchronized void remove(String playerName, WebSocketSession session) {
+        Snapshot current = snapshot;
+        Member member = current.byName().get(playerName);
+        if (member == null || member.session() != session) {
+            return;
+        }
+        if (current.members().length == 1) {
+            snapshot = EMPTY;
+            return;
+        }
+        Member[] members = current.members();
+        int index = indexOf(members, member);
+        Member[] updated = new Member[members.length - 1];
+        System.arraycopy(members, 0, updated, 0, index);
+        System.arraycopy(members, index + 1, updated, index, members.length - index - 1);
+        Map<String, Member> byName = new HashMap<>(current.byName());
+        byName.remove(playerName);
+        snapshot = new Snapshot(updated, byName);
+    }
+
+    private static int indexOf(Member[] members, Member member) {
+        for (int i = 0; i < members.length; i++) {
+            if (members[i] == member) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,72 @@
+package com.secrethitler.websocket;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+
+/**
+ * Actions a client can send, one record per action with the fields of its payload.
+ *
+ * The @JsonTypeName is the "action" of the frame; CommandReader builds its table of
+ * actions from the permitted subtypes, and bot moves are expressed as the same records,
+ * so clients and bots go through one dispatch. Fields missing from the payload are null.
+ */
+public sealed interface ClientCommand {
+
+    @JsonTypeName("join_game")
+    record JoinGame() implements ClientCommand {
+    }
+
+    @JsonTypeName("start_game")
+    record StartGame() implements ClientCommand {
+    }
+
+    @JsonTypeName("nominate_chancellor")
+    record NominateChancellor(@JsonProperty("chancellor_name") String chancellorName) implements ClientCommand {
+    }
+
+    @JsonTypeName("cast_vote")
+    record CastVote(@JsonProperty("vote") Boolean vote) implements ClientCommand {
+    }
+
+    @JsonTypeName("president_discard")
+    record PresidentDiscard(@JsonProperty("policy_index") Integer policyIndex) implements ClientCommand {
+    }
+
+    @JsonTypeName("chancellor_enact")
+    record ChancellorEnact(@JsonProperty("policy_index") Integer policyIndex) implements ClientCommand {
+    }
+
+    @JsonTypeName("executive_action")
+    record ExecutiveAction(@JsonProperty("action_type") String actionType,
+                           @JsonProperty("target") String target) implements ClientCommand {
+    }
+
+    @JsonTypeName("get_game_state")
+    record GetGameState() implements ClientCommand {
+    }
+
+    @JsonTypeName("enable_state_deltas")
+    record EnableStateDeltas() implements ClientCommand {
+    }
+
+    @JsonTypeName("ack_state")
+    record AckState(@JsonProperty("state_version") Long stateVersion) implements ClientCommand {
+    }
+
+    @JsonTypeName("ready")
+    record Ready() implements ClientCommand {
+    }
+
+    @JsonTypeName("chat_message")
+    record Chat(@JsonProperty("message") String message) implements ClientCommand {
+    }
+
+    @JsonTypeName("chat_history")
+    record ChatHistory(@JsonProperty("before") Long before,
+                       @JsonProperty("limit") Integer limit) implements ClientCommand {
+    }
+
+    @JsonTypeName("update_rules")
+    record UpdateRules(@JsonProperty("showRoleOnDeath") Boolean showRoleOnDeath) implements ClientCommand {
+    }
+}
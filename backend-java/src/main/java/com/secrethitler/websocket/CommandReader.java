@@ -0,0 +1,121 @@
+package com.secrethitler.websocket;
+
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads {"action": ..., "payload": {...}} frames straight into ClientCommand records.
+ *
+ * One streaming pass over the frame: once the action is known its payload is bound
+ * by a reader prepared for that record type, without building an intermediate Map.
+ * A payload that comes before the action is buffered as tokens first. The table of
+ * actions is built once from ClientCommand's permitted subtypes. CBOR frames from the
+ * binary subprotocol go through the same pass with a CBOR parser.
+ */
+public final class CommandReader {
+
+    /** A parsed frame; command is null when the action is not one we know. */
+    public record Inbound(String action, ClientCommand command, ActionRateLimiter.ActionClass actionClass) {
+    }
+
+    private record Binding(ObjectReader reader, ClientCommand empty, ActionRateLimiter.ActionClass actionClass) {
+    }
+
+    private final JsonFactory factory;
+    private final CBORFactory cborFactory = new CBORFactory();
+    private final Map<String, Binding> bindings = new HashMap<>();
+
+    public CommandReader(ObjectMapper objectMapper) {
+        this.factory = objectMapper.getFactory();
+        for (Class<?> type : ClientCommand.class.getPermittedSubclasses()) {
+            String action = type.getAnnotation(JsonTypeName.class).value();
+            // Unknown payload fields are ignored, as they always were
+            ObjectReader reader = objectMapper.readerFor(type)
+                    .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+            try {
+                bindings.put(action, new Binding(reader, reader.readValue("{}"),
+                        ActionRateLimiter.ActionClass.of(action)));
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot bind command " + type.getSimpleName(), e);
+            }
+        }
+    }
+
+    public Inbound read(String text) throws IOException {
+        try (JsonParser parser = factory.createParser(text)) {
+            return read(parser);
+        }
+    }
+
+    public Inbound readCbor(ByteBuffer frame) throws IOException {
+        try (JsonParser parser = frame.hasArray()
+                ? cborFactory.createParser(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining())
+                : cborFactory.createParser(toArray(frame))) {
+            return read(parser);
+        }
+    }
+
+    private static byte[] toArray(ByteBuffer frame) {
+        byte[] bytes = new byte[frame.remaining()];
+        frame.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private Inbound read(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected an object");
+        }
+        String action = null;
+        ClientCommand command = null;
+        TokenBuffer early = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("action".equals(field)) {
+                if (value != JsonToken.VALUE_STRING) {
+                    throw new JsonParseException(parser, "action must be a string");
+                }
+                action = parser.getText();
+            } else if ("payload".equals(field) && value != JsonToken.VALUE_NULL) {
+                if (value != JsonToken.START_OBJECT) {
+                    throw new JsonParseException(parser, "payload must be an object");
+                }
+                Binding binding = action != null ? bindings.get(action) : null;
+                if (binding != null) {
+                    command = binding.reader().readValue(parser);
+                } else if (action == null) {
+                    early = new TokenBuffer(parser);
+                    early.copyCurrentStructure(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (action == null) {
+            throw new JsonParseException(parser, "Missing action");
+        }
+        Binding binding = bindings.get(action);
+        if (binding == null) {
+            return new Inbound(action, null, ActionRateLimiter.ActionClass.of(action));
+        }
+        if (command == null) {
+            command = early != null ? binding.reader().readValue(early.asParser()) : binding.empty();
+        }
+        return new Inbound(action, command, binding.actionClass());
+    }
+}
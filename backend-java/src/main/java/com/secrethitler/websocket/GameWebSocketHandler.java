@@ -1,51 +1,134 @@
 package com.secrethitler.websocket;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.secrethitler.engine.GameEngine;
 import com.secrethitler.models.*;
+import com.secrethitler.service.BotService;
+import com.secrethitler.service.GameCommandExecutor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Component
-public class GameWebSocketHandler extends TextWebSocketHandler {
+public class GameWebSocketHandler extends AbstractWebSocketHandler implements SubProtocolCapable {
+    private static final CloseStatus GAME_NOT_FOUND = CloseStatus.NOT_ACCEPTABLE.withReason("Game not found");
+
     private final WebSocketManager connectionManager;
+    private final SpectatorManager spectators;
     private final com.secrethitler.service.GameService gameService;
+    private final GameCommandExecutor commandExecutor;
+    private final BotService botService;
+    private final ActionRateLimiter rateLimiter;
+    private final WebSocketSender sender;
     private final ObjectMapper objectMapper = new ObjectMapper();
-
-    public GameWebSocketHandler(WebSocketManager connectionManager, 
-                               com.secrethitler.service.GameService gameService) {
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+    private final CommandReader commandReader = new CommandReader(objectMapper);
+    // Handler of each command type, filled once in the constructor
+    private final Map<Class<? extends ClientCommand>, CommandHandler<?>> handlers = new HashMap<>();
+    // Outbox of the action running on this thread, see withOutbox
+    private final ThreadLocal<Outbox> currentOutbox = new ThreadLocal<>();
+
+    public GameWebSocketHandler(WebSocketManager connectionManager,
+                               SpectatorManager spectators,
+                               com.secrethitler.service.GameService gameService,
+                               GameCommandExecutor commandExecutor,
+                               BotService botService,
+                               ActionRateLimiter rateLimiter,
+                               WebSocketSender sender) {
         this.connectionManager = connectionManager;
+        this.spectators = spectators;
         this.gameService = gameService;
+        this.commandExecutor = commandExecutor;
+        this.botService = botService;
+        this.rateLimiter = rateLimiter;
+        this.sender = sender;
+
+        on(ClientCommand.JoinGame.class, (session, game, playerName, command) ->
+                handleJoinGame(session, game, playerName));
+        on(ClientCommand.StartGame.class, (session, game, playerName, command) ->
+                handleStartGame(session, game));
+        on(ClientCommand.NominateChancellor.class, this::handleNominateChancellor);
+        on(ClientCommand.CastVote.class, this::handleCastVote);
+        on(ClientCommand.PresidentDiscard.class, this::handlePresidentDiscard);
+        on(ClientCommand.ChancellorEnact.class, this::handleChancellorEnact);
+        on(ClientCommand.ExecutiveAction.class, this::handleExecutiveAction);
+        on(ClientCommand.GetGameState.class, (session, game, playerName, command) ->
+                handleGetGameState(session, game, playerName));
+        on(ClientCommand.EnableStateDeltas.class, (session, game, playerName, command) ->
+                handleEnableStateDeltas(session, game, playerName));
+        on(ClientCommand.AckState.class, this::handleAckState);
+        on(ClientCommand.Ready.class, (session, game, playerName, command) ->
+                handleReady(game, playerName));
+        on(ClientCommand.Chat.class, this::handleChatMessage);
+        on(ClientCommand.ChatHistory.class, (session, game, playerName, command) ->
+                handleChatHistory(session, game, command));
+        on(ClientCommand.UpdateRules.class, this::handleUpdateRules);
+    }
+
+    private <C extends ClientCommand> void on(Class<C> type, CommandHandler<C> handler) {
+        handlers.put(type, handler);
+    }
+
+    /** Games recovered from disk at startup: hand the turn back to any bot that was due to move. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeRecoveredGames() {
+        for (String gameId : gameService.getGames().keySet()) {
+            runOnGame(gameId, null, () -> { });
+        }
     }
 
     @Override
-    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        String gameId = extractGameId(session);
-        String playerName = extractPlayerName(session);
+    public List<String> getSubProtocols() {
+        return WireFormat.subprotocols();
+    }
 
-        if (gameId == null || playerName == null) {
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        SessionContext context = SessionContext.of(session);
+        if (context == null) {
             session.close(CloseStatus.BAD_DATA.withReason("Invalid game ID or player name"));
             return;
         }
+        String gameId = context.gameId();
+        String playerName = context.playerName();
 
-        Game game = gameService.getGame(gameId);
+        Game game = gameService.findGame(gameId);
         if (game == null) {
-            session.close(CloseStatus.NOT_ACCEPTABLE.withReason("Game not found"));
+            session.close(GAME_NOT_FOUND);
+            return;
+        }
+        if (context.spectator()) {
+            sender.register(session);
+            runOnLiveGame(gameId, session, live -> handleSpectatorConnected(session, live));
             return;
         }
 
+        session.getAttributes().put(ActionRateLimiter.ATTRIBUTE, rateLimiter.newSession());
+        sender.register(session);
+        runOnLiveGame(gameId, session, live -> handleConnected(session, live, gameId, playerName));
+    }
+
+    private void handleConnected(WebSocketSession session, Game game, String gameId, String playerName) throws IOException {
         connectionManager.connect(session, gameId, playerName);
 
         // Send initial game state
-        Map<String, Object> gameState = game.toDict(playerName);
-        sendMessage(session, "game_state", gameState);
+        sendGameSnapshot(session, game, playerName);
 
         // Send investigation result if available
         if (game.getExecutiveActionAvailable() != null && 
@@ -72,90 +155,212 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
+    /** Spectators get the public state now and every game event from here on. */
+    private void handleSpectatorConnected(WebSocketSession session, Game game) throws IOException {
+        spectators.join(game.getGameId(), session);
+        deliver(session, spectators.publicState(game));
+    }
+
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
-        String gameId = extractGameId(session);
-        String playerName = extractPlayerName(session);
+        handleFrame(session, () -> commandReader.read(message.getPayload()));
+    }
 
-        if (gameId == null || playerName == null) {
+    /** Actions from clients on the CBOR subprotocol; accepted on any connection. */
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        handleFrame(session, () -> commandReader.readCbor(message.getPayload()));
+    }
+
+    @FunctionalInterface
+    private interface FrameParser {
+        CommandReader.Inbound parse() throws IOException;
+    }
+
+    private void handleFrame(WebSocketSession session, FrameParser parser) {
+        SessionContext context = SessionContext.of(session);
+        if (context == null || context.spectator()) {
+            // Spectators only watch; whatever they send is dropped
             return;
         }
+        String gameId = context.gameId();
+        String playerName = context.playerName();
 
-        Game game = gameService.getGame(gameId);
-        if (game == null) {
+        if (gameService.getGame(gameId) == null) {
+            return;
+        }
+
+        // Flood protection first: a frame over budget is not even parsed
+        ActionRateLimiter.SessionLimits limits =
+                (ActionRateLimiter.SessionLimits) session.getAttributes().get(ActionRateLimiter.ATTRIBUTE);
+        if (!rateLimiter.allowFrame(limits)) {
+            throttled(session, gameId, limits, null);
             return;
         }
 
+        // Parsing happens on the receiving thread; the action itself runs on the game's queue
+        CommandReader.Inbound inbound;
         try {
-            Map<String, Object> data = objectMapper.readValue(message.getPayload(), Map.class);
-            String action = (String) data.get("action");
-            Map<String, Object> payload = (Map<String, Object>) data.getOrDefault("payload", Map.of());
+            inbound = parser.parse();
+        } catch (IOException e) {
+            e.printStackTrace();
+            runOnGame(gameId, session, () -> sendMessage(session, "error", Map.of("message", "Invalid message format")));
+            return;
+        }
+        String action = inbound.action();
+        ClientCommand command = inbound.command();
 
-            handleAction(session, game, gameId, playerName, action, payload);
+        if (!rateLimiter.allowAction(limits, gameId, inbound.actionClass())) {
+            throttled(session, gameId, limits, action);
+            return;
+        }
+        if (command == null) {
+            runOnGame(gameId, session, () -> sendMessage(session, "error", Map.of("message", "Unknown action: " + action)));
+            return;
+        }
+        if (command instanceof ClientCommand.GetGameState && limits != null && !limits.queueStateRequest()) {
+            // One is already queued for this connection and will send the latest state
+            rateLimiter.stateRequestCoalesced();
+            return;
+        }
+
+        runOnLiveGame(gameId, session, live -> dispatch(session, live, playerName, command));
+    }
+
+    /** Tells a throttled client to slow down, at most once a second; the frame itself is dropped. */
+    private void throttled(WebSocketSession session, String gameId, ActionRateLimiter.SessionLimits limits,
+                           String action) {
+        if (!rateLimiter.shouldNotify(limits)) {
+            return;
+        }
+        runOnGame(gameId, null, () -> {
+            if (session.isOpen()) {
+                sendMessage(session, "error", Map.of(
+                    "message", "Too many requests, slow down",
+                    "code", "rate_limited",
+                    "action", action != null ? action : ""
+                ));
+            }
+        });
+    }
+
+    /**
+     * Queues a command on the game's serial executor. Everything that reads or mutates
+     * a game, or sends to its sessions, goes through here so it never runs concurrently
+     * with another command for the same game.
+     */
+    private void runOnGame(String gameId, WebSocketSession session, GameCommand command) {
+        commandExecutor.execute(gameId, () -> {
+            try {
+                withOutbox(command);
+            } catch (Exception e) {
+                e.printStackTrace();
+                if (session != null && session.isOpen()) {
+                    try {
+                        sendMessage(session, "error", Map.of("message", "Invalid message format"));
+                    } catch (IOException ignored) {
+                        // Session is going away
+                    }
+                }
+            }
+            // The command may have handed the turn to a bot
+            Game game = gameService.getGame(gameId);
+            if (game != null) {
+                botService.scheduleTurn(game, this::applyBotMove);
+            }
+        });
+    }
+
+    /**
+     * Queues a command for the instance of the game that is live when it runs. A command
+     * queued just before its game was hibernated acts on the game loaded back from disk,
+     * never on the detached one. If the game is gone for good, the connection is closed.
+     */
+    private void runOnLiveGame(String gameId, WebSocketSession session, LiveGameCommand command) {
+        runOnGame(gameId, session, () -> {
+            Game game = gameService.findGame(gameId);
+            if (game == null) {
+                session.close(GAME_NOT_FOUND);
+                return;
+            }
+            command.run(game);
+        });
+    }
+
+    /**
+     * Applies a bot decision exactly like the same action from a client. Bots have no
+     * socket, so replies addressed to the acting session are dropped.
+     */
+    private void applyBotMove(Game game, BotService.BotMove move) {
+        try {
+            withOutbox(() -> dispatch(null, game, move.playerName(), move.command()));
         } catch (Exception e) {
             e.printStackTrace();
-            sendMessage(session, "error", Map.of("message", "Invalid message format"));
-        }
-    }
-
-    private void handleAction(WebSocketSession session, Game game, String gameId, 
-                              String playerName, String action, Map<String, Object> payload) throws IOException {
-        switch (action) {
-            case "join_game":
-                handleJoinGame(session, game, gameId, playerName);
-                break;
-            case "start_game":
-                handleStartGame(session, game, gameId, playerName);
-                break;
-            case "nominate_chancellor":
-                handleNominateChancellor(session, game, gameId, playerName, payload);
-                break;
-            case "cast_vote":
-                handleCastVote(session, game, gameId, playerName, payload);
-                break;
-            case "president_discard":
-                handlePresidentDiscard(session, game, gameId, playerName, payload);
-                break;
-            case "chancellor_enact":
-                handleChancellorEnact(session, game, gameId, playerName, payload);
-                break;
-            case "executive_action":
-                handleExecutiveAction(session, game, gameId, playerName, payload);
-                break;
-            case "get_game_state":
-                handleGetGameState(session, game, playerName);
-                break;
-            case "ready":
-                handleReady(session, game, gameId, playerName);
-                break;
-            case "chat_message":
-                handleChatMessage(session, game, gameId, playerName, payload);
-                break;
-            case "update_rules":
-                handleUpdateRules(session, game, gameId, playerName, payload);
-                break;
-            default:
-                sendMessage(session, "error", Map.of("message", "Unknown action: " + action));
-        }
-    }
-
-    private void handleUpdateRules(WebSocketSession session, Game game, String gameId, 
-                                  String playerName, Map<String, Object> payload) throws IOException {
+        }
+    }
+
+    /**
+     * Runs one action with everything it sends collected in an Outbox, which is flushed
+     * as one frame per session when the action ends, also when it fails halfway.
+     */
+    private void withOutbox(GameCommand command) throws IOException {
+        if (currentOutbox.get() != null) {
+            command.run();
+            return;
+        }
+        Outbox outbox = new Outbox(sender, this::encodeMessage);
+        currentOutbox.set(outbox);
+        try {
+            command.run();
+        } finally {
+            currentOutbox.remove();
+            outbox.flush();
+        }
+    }
+
+    @FunctionalInterface
+    private interface GameCommand {
+        void run() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface LiveGameCommand {
+        void run(Game game) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface CommandHandler<C extends ClientCommand> {
+        void handle(WebSocketSession session, Game game, String playerName, C command) throws IOException;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void dispatch(WebSocketSession session, Game game, String playerName,
+                          ClientCommand command) throws IOException {
+        CommandHandler<ClientCommand> handler = (CommandHandler<ClientCommand>) handlers.get(command.getClass());
+        handler.handle(session, game, playerName, command);
+    }
+
+    private void handleUpdateRules(WebSocketSession session, Game game, String playerName,
+                                   ClientCommand.UpdateRules command) throws IOException {
+        String gameId = game.getGameId();
         // Only host can update rules
         if (!playerName.equals(game.getHostName())) {
             sendMessage(session, "error", Map.of("message", "Only the host can update rules"));
             return;
         }
 
-        if (payload.containsKey("showRoleOnDeath")) {
-            game.getRules().setShowRoleOnDeath((Boolean) payload.get("showRoleOnDeath"));
+        if (command.showRoleOnDeath() != null) {
+            GameRules rules = game.getRules();
+            GameEngine.updateRules(game, new GameRules(command.showRoleOnDeath(),
+                    rules.isAllowVeto(), rules.isSpecialElectionRules()));
         }
 
         broadcastToGame(gameId, "rules_updated", Map.of("rules", game.getRules()));
         broadcastGameState(gameId);
     }
 
-    private void handleJoinGame(WebSocketSession session, Game game, String gameId, String playerName) throws IOException {
+    private void handleJoinGame(WebSocketSession session, Game game, String playerName) throws IOException {
+        String gameId = game.getGameId();
         boolean success = GameEngine.addPlayer(game, playerName);
         if (success) {
             broadcastToGame(gameId, "player_joined", Map.of(
@@ -168,24 +373,25 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
         broadcastGameState(gameId);
     }
 
-    private void handleStartGame(WebSocketSession session, Game game, String gameId, String playerName) throws IOException {
+    private void handleStartGame(WebSocketSession session, Game game) throws IOException {
+        String gameId = game.getGameId();
         if (GameEngine.startGame(game)) {
             // Send roles to each player
-            for (Player player : game.getPlayers()) {
-                Map<String, Object> playerState = game.toDict(player.getName());
-                WebSocketSession playerSession = connectionManager.getSession(gameId, player.getName());
-                if (playerSession != null) {
-                    sendMessage(playerSession, "game_started", playerState);
+            for (BroadcastGroup.Member member : connectionManager.getMembers(gameId)) {
+                if (game.getPlayerByName(member.playerName()) != null) {
+                    sendFullState(member.session(), "game_started", game, member.playerName(), WebSocketSender.Kind.MESSAGE);
                 }
             }
+            broadcastSpectatorState(game);
         } else {
             sendMessage(session, "error", Map.of("message", "Cannot start game"));
         }
     }
 
-    private void handleNominateChancellor(WebSocketSession session, Game game, String gameId, 
-                                         String playerName, Map<String, Object> payload) throws IOException {
-        String chancellorName = (String) payload.get("chancellor_name");
+    private void handleNominateChancellor(WebSocketSession session, Game game, String playerName,
+                                          ClientCommand.NominateChancellor command) throws IOException {
+        String gameId = game.getGameId();
+        String chancellorName = command.chancellorName();
         if (GameEngine.nominateChancellor(game, playerName, chancellorName)) {
             broadcastToGame(gameId, "chancellor_nominated", Map.of(
                 "chancellor_name", chancellorName,
@@ -197,9 +403,10 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
         broadcastGameState(gameId);
     }
 
-    private void handleCastVote(WebSocketSession session, Game game, String gameId, 
-                               String playerName, Map<String, Object> payload) throws IOException {
-        Boolean vote = (Boolean) payload.get("vote");
+    private void handleCastVote(WebSocketSession session, Game game, String playerName,
+                                ClientCommand.CastVote command) throws IOException {
+        String gameId = game.getGameId();
+        Boolean vote = command.vote();
         if (vote != null && GameEngine.castVote(game, playerName, vote)) {
             broadcastToGame(gameId, "vote_cast", Map.of(
                 "player_name", playerName,
@@ -225,17 +432,17 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
-    private void handlePresidentDiscard(WebSocketSession session, Game game, String gameId, 
-                                       String playerName, Map<String, Object> payload) throws IOException {
-        Integer policyIndex = (Integer) payload.get("policy_index");
+    private void handlePresidentDiscard(WebSocketSession session, Game game, String playerName,
+                                        ClientCommand.PresidentDiscard command) throws IOException {
+        String gameId = game.getGameId();
+        Integer policyIndex = command.policyIndex();
         if (policyIndex != null && GameEngine.presidentDiscardPolicy(game, playerName, policyIndex)) {
             // Send updated hand to chancellor
             Player chancellor = game.getPlayerByName(game.getNominatedChancellor());
             if (chancellor != null) {
                 WebSocketSession chancellorSession = connectionManager.getSession(gameId, chancellor.getName());
                 if (chancellorSession != null) {
-                    Map<String, Object> chancellorState = game.toDict(chancellor.getName());
-                    sendMessage(chancellorSession, "game_state", chancellorState);
+                    sendGameState(chancellorSession, game, chancellor.getName());
                 }
             }
         } else {
@@ -243,9 +450,10 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
-    private void handleChancellorEnact(WebSocketSession session, Game game, String gameId, 
-                                       String playerName, Map<String, Object> payload) throws IOException {
-        Integer policyIndex = (Integer) payload.get("policy_index");
+    private void handleChancellorEnact(WebSocketSession session, Game game, String playerName,
+                                       ClientCommand.ChancellorEnact command) throws IOException {
+        String gameId = game.getGameId();
+        Integer policyIndex = command.policyIndex();
         int prevLiberal = game.getLiberalPolicies();
         int prevFascist = game.getFascistPolicies();
 
@@ -257,10 +465,7 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
                     String systemMsg = policyType + " policy enacted! " + 
                         (policyType.equals("Fascist") ? "Fascists gain another one!" : "Liberals advance!");
                     ChatMessage systemMessage = new ChatMessage("System", systemMsg, ChatMessage.MessageType.SYSTEM_MESSAGE);
-                    game.getChatHistory().add(systemMessage);
-                    if (game.getChatHistory().size() > 100) {
-                        game.getChatHistory().remove(0);
-                    }
+                    ChatLog.Entry systemEntry = GameEngine.addChatMessage(game, systemMessage);
 
                     broadcastToGame(gameId, "policy_enacted", Map.of(
                         "policy_type", policyType,
@@ -271,12 +476,7 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
                     ));
                     
                     // Broadcast system message
-                    broadcastToGame(gameId, "chat_message", Map.of(
-                        "sender", "System",
-                        "message", systemMsg,
-                        "timestamp", systemMessage.getTimestamp().toString(),
-                        "type", "SYSTEM_MESSAGE"
-                    ));
+                    broadcastToGame(gameId, "chat_message", systemEntry.payload());
 
             broadcastGameState(gameId);
 
@@ -286,10 +486,9 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
                 if (president != null) {
                     WebSocketSession presidentSession = connectionManager.getSession(gameId, president.getName());
                     if (presidentSession != null) {
-                        Map<String, Object> presidentState = game.toDict(president.getName());
                         sendMessage(presidentSession, "executive_action_available", Map.of(
                             "action_type", game.getExecutiveActionAvailable(),
-                            "game_state", presidentState
+                            "game_state", new GameStateView(game, president.getName())
                         ));
                     }
                 }
@@ -299,10 +498,11 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
-    private void handleExecutiveAction(WebSocketSession session, Game game, String gameId, 
-                                      String playerName, Map<String, Object> payload) throws IOException {
-        String actionType = (String) payload.get("action_type");
-        String target = (String) payload.get("target");
+    private void handleExecutiveAction(WebSocketSession session, Game game, String playerName,
+                                       ClientCommand.ExecutiveAction command) throws IOException {
+        String gameId = game.getGameId();
+        String actionType = command.actionType();
+        String target = command.target();
 
         if (GameEngine.executeExecutiveAction(game, playerName, actionType, target)) {
             // Send investigation result if applicable
@@ -328,12 +528,35 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
     }
 
     private void handleGetGameState(WebSocketSession session, Game game, String playerName) throws IOException {
-        Map<String, Object> playerState = game.toDict(playerName);
-        sendMessage(session, "game_state", playerState);
+        if (session != null
+                && session.getAttributes().get(ActionRateLimiter.ATTRIBUTE) instanceof ActionRateLimiter.SessionLimits limits) {
+            limits.stateRequestRunning();
+        }
+        sendGameSnapshot(session, game, playerName);
+    }
+
+    private void handleEnableStateDeltas(WebSocketSession session, Game game, String playerName) throws IOException {
+        session.getAttributes().putIfAbsent(StateSyncSession.ATTRIBUTE, new StateSyncSession());
+        sendGameSnapshot(session, game, playerName);
     }
 
-    private void handleReady(WebSocketSession session, Game game, String gameId, String playerName) throws IOException {
-        game.getReadyStatus().put(playerName, true);
+    private void handleAckState(WebSocketSession session, Game game, String playerName,
+                                ClientCommand.AckState command) throws IOException {
+        StateSyncSession sync = (StateSyncSession) session.getAttributes().get(StateSyncSession.ATTRIBUTE);
+        Long version = command.stateVersion();
+        if (sync == null || version == null) {
+            sendMessage(session, "error", Map.of("message", "State deltas are not enabled"));
+            return;
+        }
+        if (!sync.acknowledge(version)) {
+            // Client is on a version we never sent: resynchronise with a full snapshot
+            sendGameSnapshot(session, game, playerName);
+        }
+    }
+
+    private void handleReady(Game game, String playerName) throws IOException {
+        String gameId = game.getGameId();
+        GameEngine.markReady(game, playerName);
         broadcastToGame(gameId, "player_ready", Map.of(
             "player_name", playerName,
             "all_ready", GameEngine.allPlayersReady(game)
@@ -347,93 +570,193 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
-    private void handleChatMessage(WebSocketSession session, Game game, String gameId, 
-                                   String playerName, Map<String, Object> payload) throws IOException {
-        String message = (String) payload.get("message");
+    private void handleChatMessage(WebSocketSession session, Game game, String playerName,
+                                   ClientCommand.Chat command) throws IOException {
+        String message = command.message();
         if (message != null && !message.trim().isEmpty()) {
             ChatMessage chatMessage = new ChatMessage(playerName, message, ChatMessage.MessageType.PLAYER_MESSAGE);
-            game.getChatHistory().add(chatMessage);
-            // Keep only last 100 messages
-            if (game.getChatHistory().size() > 100) {
-                game.getChatHistory().remove(0);
-            }
-
-            broadcastToGame(gameId, "chat_message", Map.of(
-                "sender", playerName,
-                "message", message,
-                "timestamp", chatMessage.getTimestamp().toString(),
-                "type", "PLAYER_MESSAGE"
-            ));
+            broadcastToGame(game.getGameId(), "chat_message", GameEngine.addChatMessage(game, chatMessage).payload());
         }
     }
 
+    /**
+     * Sends a page of the chat: up to "limit" messages older than sequence number "before",
+     * or the latest ones without it. Clients load the chat this way when they (re)connect.
+     */
+    private void handleChatHistory(WebSocketSession session, Game game, ClientCommand.ChatHistory command) throws IOException {
+        ChatLog chatLog = game.getChatLog();
+        long before = command.before() != null ? command.before() : -1;
+        int limit = command.limit() != null ? Math.max(1, Math.min(command.limit(), chatLog.capacity())) : 50;
+        List<Map<String, Object>> messages = chatLog.page(before, limit);
+        boolean hasMore = !messages.isEmpty() && chatLog.hasBefore((Long) messages.get(0).get("seq"));
+        sendMessage(session, "chat_history", Map.of(
+            "messages", messages,
+            "has_more", hasMore
+        ));
+    }
+
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        String gameId = extractGameId(session);
-        String playerName = extractPlayerName(session);
+        sender.unregister(session);
+        SessionContext context = SessionContext.of(session);
+        if (context == null) {
+            return;
+        }
+        String gameId = context.gameId();
+        if (context.spectator()) {
+            spectators.leave(gameId, session);
+            return;
+        }
+        String playerName = context.playerName();
+        if (gameService.getGame(gameId) == null) {
+            // Game was archived or hibernated; there is no queue to run on
+            connectionManager.disconnect(gameId, playerName, session);
+            rateLimiter.forgetGame(gameId);
+            return;
+        }
+        runOnGame(gameId, null, () -> handleDisconnected(session, gameId, playerName));
+    }
 
-        if (gameId != null && playerName != null) {
-            connectionManager.disconnect(gameId, playerName);
-            Game game = gameService.getGame(gameId);
-            if (game != null) {
-                // Remove player from game if in lobby
-                if (game.getCurrentPhase() == Phase.LOBBY) {
-                    game.getPlayers().removeIf(p -> p.getName().equals(playerName));
-                }
+    private void handleDisconnected(WebSocketSession session, String gameId, String playerName) throws IOException {
+        connectionManager.disconnect(gameId, playerName, session);
+        if (!connectionManager.hasConnections(gameId)) {
+            rateLimiter.forgetGame(gameId);
+        }
+        Game game = gameService.getGame(gameId);
+        if (game != null) {
+            // Remove player from game if in lobby
+            GameEngine.removePlayer(game, playerName);
 
-                // Broadcast disconnection
-                broadcastToGame(gameId, "player_disconnected", Map.of("player_name", playerName));
-                broadcastGameState(gameId);
-            }
+            // Broadcast disconnection
+            broadcastToGame(gameId, "player_disconnected", Map.of("player_name", playerName));
+            broadcastGameState(gameId);
         }
     }
 
-    private String extractGameId(WebSocketSession session) {
-        String uri = session.getUri().toString();
-        String[] parts = uri.split("/");
-        for (int i = 0; i < parts.length; i++) {
-            if ("ws".equals(parts[i]) && i + 1 < parts.length) {
-                return parts[i + 1];
-            }
+    private void sendMessage(WebSocketSession session, String type, Object payload) throws IOException {
+        sendMessage(session, type, payload, WebSocketSender.Kind.MESSAGE);
+    }
+
+    /** Queues a message for the connection; returns before it is written. */
+    private void sendMessage(WebSocketSession session, String type, Object payload,
+                             WebSocketSender.Kind kind) throws IOException {
+        if (session == null) {
+            // Bot move: there is no connection to answer
+            return;
         }
-        return null;
+        deliver(session, new Outbox.Message(type, payload, kind));
     }
 
-    private String extractPlayerName(WebSocketSession session) {
-        String uri = session.getUri().toString();
-        String[] parts = uri.split("/");
-        for (int i = 0; i < parts.length; i++) {
-            if ("ws".equals(parts[i]) && i + 2 < parts.length) {
-                return java.net.URLDecoder.decode(parts[i + 2], java.nio.charset.StandardCharsets.UTF_8);
-            }
+    /** Adds the message to the running action's outbox, or queues it right away outside one. */
+    private void deliver(WebSocketSession session, Outbox.Message message) throws IOException {
+        Outbox outbox = currentOutbox.get();
+        if (outbox != null) {
+            outbox.add(session, message);
+        } else {
+            sender.send(session, message.frame(WireFormat.of(session), this::encodeMessage), message.kind());
         }
-        return null;
     }
 
-    private void sendMessage(WebSocketSession session, String type, Object payload) throws IOException {
+    private WebSocketMessage<?> encodeMessage(WireFormat format, String type, Object payload) throws JsonProcessingException {
         Map<String, Object> message = Map.of("type", type, "payload", payload);
-        session.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
+        return switch (format) {
+            case JSON -> new TextMessage(objectMapper.writeValueAsString(message));
+            case CBOR -> new BinaryMessage(cborMapper.writeValueAsBytes(message));
+        };
     }
 
+    /** Sends the message to every player and spectator of the game. */
     private void broadcastToGame(String gameId, String type, Object payload) throws IOException {
-        for (WebSocketSession session : connectionManager.getAllSessions(gameId)) {
-            if (session.isOpen()) {
-                sendMessage(session, type, payload);
-            }
+        BroadcastGroup.Member[] members = connectionManager.getMembers(gameId);
+        Collection<SpectatorManager.Spectator> watching = spectators.getSpectators(gameId);
+        if (members.length == 0 && watching.isEmpty()) {
+            return;
+        }
+        // Same payload for everyone: sessions that get it alone share one frame per wire format
+        Outbox.Message message = new Outbox.Message(type, payload, WebSocketSender.Kind.MESSAGE);
+        for (BroadcastGroup.Member member : members) {
+            deliver(member.session(), message);
+        }
+        for (SpectatorManager.Spectator spectator : watching) {
+            deliver(spectator.session(), message);
         }
     }
 
+    /** Sends every connected player their own view of the game, and spectators the public one. */
     private void broadcastGameState(String gameId) throws IOException {
         Game game = gameService.getGame(gameId);
         if (game == null) return;
 
-        for (Player player : game.getPlayers()) {
-            WebSocketSession session = connectionManager.getSession(gameId, player.getName());
-            if (session != null && session.isOpen()) {
-                Map<String, Object> playerState = game.toDict(player.getName());
-                sendMessage(session, "game_state", playerState);
+        for (BroadcastGroup.Member member : connectionManager.getMembers(gameId)) {
+            if (game.getPlayerByName(member.playerName()) != null) {
+                sendGameState(member.session(), game, member.playerName());
             }
         }
+        broadcastSpectatorState(game);
+    }
+
+    /** One public game_state, built once per state version, for every spectator. */
+    private void broadcastSpectatorState(Game game) throws IOException {
+        Collection<SpectatorManager.Spectator> watching = spectators.getSpectators(game.getGameId());
+        if (watching.isEmpty()) {
+            return;
+        }
+        Outbox.Message message = spectators.publicState(game);
+        for (SpectatorManager.Spectator spectator : watching) {
+            deliver(spectator.session(), message);
+        }
+    }
+
+    /**
+     * Sends the viewer's state: a game_state_delta with only the changed fields if the
+     * client opted into deltas and is in sync, otherwise a full game_state snapshot.
+     * A client still behind on an earlier state frame gets a snapshot too, which replaces
+     * whatever is waiting instead of stacking another delta behind it.
+     */
+    private void sendGameState(WebSocketSession session, Game game, String playerName) throws IOException {
+        StateSyncSession sync = (StateSyncSession) session.getAttributes().get(StateSyncSession.ATTRIBUTE);
+        if (sync == null || !sync.canSendDelta() || sender.hasPendingState(session)) {
+            sendGameSnapshot(session, game, playerName);
+            return;
+        }
+
+        long baseVersion = sync.getSentVersion();
+        Map<String, Object> playerState = game.toDict(playerName);
+        long version = (Long) playerState.get("state_version");
+        if (version == baseVersion) {
+            return;
+        }
+        List<Map<String, Object>> ops = StateDiff.diff(sync.getSentState(), playerState);
+        if (ops.isEmpty()) {
+            return;
+        }
+        sendMessage(session, "game_state_delta", Map.of(
+            "base_version", baseVersion,
+            "state_version", version,
+            "ops", ops
+        ), WebSocketSender.Kind.DELTA);
+        sync.recordDelta(version, playerState);
     }
-}
 
+    private void sendGameSnapshot(WebSocketSession session, Game game, String playerName) throws IOException {
+        sendFullState(session, "game_state", game, playerName, WebSocketSender.Kind.STATE);
+    }
+
+    /**
+     * Sends the viewer's full state. A delta-sync connection gets it built as maps, which
+     * later deltas are diffed against; every other connection gets a GameStateView,
+     * written straight from the game.
+     */
+    private void sendFullState(WebSocketSession session, String type, Game game, String playerName,
+                               WebSocketSender.Kind kind) throws IOException {
+        StateSyncSession sync = session != null
+                ? (StateSyncSession) session.getAttributes().get(StateSyncSession.ATTRIBUTE) : null;
+        if (sync == null) {
+            sendMessage(session, type, new GameStateView(game, playerName), kind);
+            return;
+        }
+        Map<String, Object> playerState = game.toDict(playerName);
+        sendMessage(session, type, playerState, kind);
+        sync.recordSnapshot((Long) playerState.get("state_version"), playerState);
+    }
+}
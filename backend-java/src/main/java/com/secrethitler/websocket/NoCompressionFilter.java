@@ -0,0 +1,52 @@
+package com.secrethitler.websocket;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+
+/**
+ * Hides the client's Sec-WebSocket-Extensions offer from the handshake, so the
+ * connection is set up without permessage-deflate.
+ *
+ * Tomcat accepts the permessage-deflate offer every browser makes and then deflates
+ * each frame on that connection, keeping a zlib stream of roughly 300 KB per
+ * connection; it has no setting to turn its built-in extension off. Registered for
+ * the WebSocket endpoint when app.websocket.compression.enabled=false.
+ */
+public class NoCompressionFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        chain.doFilter(new HttpServletRequestWrapper(request) {
+            @Override
+            public String getHeader(String name) {
+                return isExtensions(name) ? null : super.getHeader(name);
+            }
+
+            @Override
+            public Enumeration<String> getHeaders(String name) {
+                return isExtensions(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+            }
+
+            @Override
+            public Enumeration<String> getHeaderNames() {
+                return Collections.enumeration(Collections.list(super.getHeaderNames()).stream()
+                        .filter(name -> !isExtensions(name))
+                        .toList());
+            }
+        }, response);
+    }
+
+    private static boolean isExtensions(String name) {
+        return WebSocketHttpHeaders.SEC_WEBSOCKET_EXTENSIONS.equalsIgnoreCase(name);
+    }
+}
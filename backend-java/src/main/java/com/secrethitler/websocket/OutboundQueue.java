@@ -0,0 +1,152 @@
+package com.secrethitler.websocket;
+
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Frames waiting to go out on one connection.
+ *
+ * Enqueueing never blocks: the frame is appended and, if nobody is draining the queue,
+ * a drain is started on the send pool. At most one drain runs per connection, so frames
+ * leave in order and the session is never written from two threads at once. A full
+ * game_state replaces any state frame still waiting. When the waiting frames exceed the
+ * buffer limit, or the frame being written has been stuck longer than the time limit,
+ * the queue is dropped and the connection closed. A stuck write is noticed on the next
+ * enqueue, or by the sender's periodic sweep when the game is quiet.
+ */
+final class OutboundQueue implements Runnable {
+
+    private record Frame(WebSocketMessage<?> message, WebSocketSender.Kind kind) {
+    }
+
+    private final WebSocketSession session;
+    private final WebSocketSender sender;
+    private final boolean compressed;
+    private final ArrayDeque<Frame> pending = new ArrayDeque<>();
+    private long pendingChars;
+    private boolean draining;
+    private boolean sending;
+    private long sendingSince;
+    private boolean closed;
+
+    OutboundQueue(WebSocketSession session, WebSocketSender sender, boolean compressed) {
+        this.session = session;
+        this.sender = sender;
+        this.compressed = compressed;
+    }
+
+    /** Whether the connection negotiated permessage-deflate. */
+    boolean isCompressed() {
+        return compressed;
+    }
+
+    synchronized boolean hasPendingState() {
+        for (Frame frame : pending) {
+            if (frame.kind() != WebSocketSender.Kind.MESSAGE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void enqueue(WebSocketMessage<?> message, WebSocketSender.Kind kind) {
+        boolean overflow;
+        boolean startDrain;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (kind == WebSocketSender.Kind.STATE) {
+                // A full state makes every earlier state and delta still waiting useless
+                Iterator<Frame> it = pending.iterator();
+                while (it.hasNext()) {
+                    Frame frame = it.next();
+                    if (frame.kind() != WebSocketSender.Kind.MESSAGE) {
+                        it.remove();
+                        pendingChars -= frame.message().getPayloadLength();
+                        sender.stateFrameCoalesced();
+                    }
+                }
+            }
+            pending.add(new Frame(message, kind));
+            pendingChars += message.getPayloadLength();
+
+            overflow = pendingChars > sender.getBufferLimit() || stuck(System.nanoTime());
+            if (overflow) {
+                drop();
+            }
+            startDrain = !overflow && !draining;
+            if (startDrain) {
+                draining = true;
+            }
+        }
+        if (overflow) {
+            sender.disconnectSlowConsumer(session);
+        } else if (startDrain) {
+            sender.drain(this);
+        }
+    }
+
+    /** Drops the queue and closes the connection if its current write is stuck. */
+    void closeIfStuck(long now) {
+        synchronized (this) {
+            if (closed || !stuck(now)) {
+                return;
+            }
+            drop();
+        }
+        sender.disconnectSlowConsumer(session);
+    }
+
+    private boolean stuck(long now) {
+        return sending && now - sendingSince > sender.getTimeLimitNanos();
+    }
+
+    /** Stops sending; called once the connection is gone or being closed. */
+    synchronized void close() {
+        drop();
+    }
+
+    private void drop() {
+        closed = true;
+        pending.clear();
+        pendingChars = 0;
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            Frame frame;
+            synchronized (this) {
+                sending = false;
+                frame = pending.poll();
+                if (frame == null) {
+                    draining = false;
+                    return;
+                }
+                pendingChars -= frame.message().getPayloadLength();
+                sending = true;
+                sendingSince = System.nanoTime();
+            }
+            try {
+                if (session.isOpen()) {
+                    long cpuStart = sender.threadCpuTime();
+                    session.sendMessage(frame.message());
+                    sender.frameSent(compressed, cpuStart, frame.message());
+                }
+            } catch (Exception e) {
+                // The connection is broken; afterConnectionClosed does the cleanup
+                synchronized (this) {
+                    drop();
+                    sending = false;
+                    draining = false;
+                }
+                sender.sendFailed();
+                return;
+            }
+        }
+    }
+}
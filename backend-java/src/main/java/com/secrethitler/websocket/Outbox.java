@@ -0,0 +1,136 @@
+package com.secrethitler.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything one action sends, held back until the action is done.
+ *
+ * A vote that completes an election produces vote_cast, election_resolved and a
+ * game_state for every player. Collected here, they leave as one frame per session: the
+ * message itself when there is only one, otherwise a "batch" frame whose payload lists
+ * the {type, payload} messages in the order they were sent. A full game_state replaces
+ * any state or delta collected before it for the same session, as in OutboundQueue.
+ * Used only on the game's command queue, so it needs no locking. Payloads are serialized
+ * at the flush, still on that queue, so they show the game as the action left it.
+ * Sessions that collected the same messages in the same order, such as the spectators
+ * of a game, share one batch frame per wire format.
+ */
+final class Outbox {
+
+    @FunctionalInterface
+    interface Encoder {
+        WebSocketMessage<?> encode(WireFormat format, String type, Object payload) throws JsonProcessingException;
+    }
+
+    /** One message, shared by every session it was broadcast to. */
+    static final class Message {
+        private final String type;
+        private final Object payload;
+        private final WebSocketSender.Kind kind;
+        // Frame per wire format, encoded once for all the sessions that get this message alone
+        private final WebSocketMessage<?>[] frames = new WebSocketMessage<?>[WireFormat.values().length];
+
+        Message(String type, Object payload, WebSocketSender.Kind kind) {
+            this.type = type;
+            this.payload = payload;
+            this.kind = kind;
+        }
+
+        WebSocketSender.Kind kind() {
+            return kind;
+        }
+
+        WebSocketMessage<?> frame(WireFormat format, Encoder encoder) throws JsonProcessingException {
+            WebSocketMessage<?> frame = frames[format.ordinal()];
+            if (frame == null) {
+                frame = encoder.encode(format, type, payload);
+                frames[format.ordinal()] = frame;
+            }
+            return frame;
+        }
+
+        Map<String, Object> toBatchEntry() {
+            return Map.of("type", type, "payload", payload);
+        }
+    }
+
+    private final WebSocketSender sender;
+    private final Encoder encoder;
+    private final Map<WebSocketSession, List<Message>> pending = new LinkedHashMap<>();
+
+    Outbox(WebSocketSender sender, Encoder encoder) {
+        this.sender = sender;
+        this.encoder = encoder;
+    }
+
+    void add(WebSocketSession session, Message message) {
+        List<Message> messages = pending.computeIfAbsent(session, key -> new ArrayList<>(4));
+        if (message.kind() == WebSocketSender.Kind.STATE) {
+            Iterator<Message> it = messages.iterator();
+            while (it.hasNext()) {
+                if (it.next().kind() != WebSocketSender.Kind.MESSAGE) {
+                    it.remove();
+                    sender.stateFrameCoalesced();
+                }
+            }
+        }
+        messages.add(message);
+    }
+
+    /** Queues one frame per session on its outbound queue. */
+    void flush() throws JsonProcessingException {
+        // Batch frames by the messages they hold; Message compares by identity
+        Map<List<Message>, WebSocketMessage<?>[]> batches = null;
+        for (Map.Entry<WebSocketSession, List<Message>> entry : pending.entrySet()) {
+            WebSocketSession session = entry.getKey();
+            List<Message> messages = entry.getValue();
+            WireFormat format = WireFormat.of(session);
+            if (messages.size() == 1) {
+                Message message = messages.get(0);
+                sender.send(session, message.frame(format, encoder), message.kind());
+                continue;
+            }
+            if (batches == null) {
+                batches = new HashMap<>();
+            }
+            WebSocketMessage<?>[] frames = batches.computeIfAbsent(messages,
+                    key -> new WebSocketMessage<?>[WireFormat.values().length]);
+            WebSocketMessage<?> frame = frames[format.ordinal()];
+            if (frame == null) {
+                frame = encodeBatch(format, messages);
+                frames[format.ordinal()] = frame;
+            }
+            sender.send(session, frame, batchKind(messages));
+            sender.messagesBatched(messages.size());
+        }
+        pending.clear();
+    }
+
+    private WebSocketMessage<?> encodeBatch(WireFormat format, List<Message> messages) throws JsonProcessingException {
+        List<Map<String, Object>> batch = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            batch.add(message.toBatchEntry());
+        }
+        return encoder.encode(format, "batch", batch);
+    }
+
+    private static WebSocketSender.Kind batchKind(List<Message> messages) {
+        for (Message message : messages) {
+            if (message.kind() == WebSocketSender.Kind.MESSAGE) {
+                return WebSocketSender.Kind.MESSAGE;
+            }
+        }
+        // A batch of states and deltas may still be replaced by a later full state,
+        // but never replaces anything itself: it can start with a delta
+        return WebSocketSender.Kind.DELTA;
+    }
+}
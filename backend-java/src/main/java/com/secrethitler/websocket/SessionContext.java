@@ -0,0 +1,57 @@
+package com.secrethitler.websocket;
+
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Game and player a connection belongs to, taken from /ws/{gameId}/{playerName} once
+ * during the handshake and kept in the session attributes, so messages do not re-parse
+ * the URI. Spectators connect to /spectate/{gameId} and have no player name.
+ */
+public record SessionContext(String gameId, String playerName, boolean spectator) {
+    public static final String ATTRIBUTE = "context";
+
+    /** The connection's context, or null if its URI did not name a game and player or a game to watch. */
+    public static SessionContext of(WebSocketSession session) {
+        return (SessionContext) session.getAttributes().get(ATTRIBUTE);
+    }
+
+    static SessionContext fromUri(URI uri) {
+        String[] parts = uri.getRawPath().split("/");
+        for (int i = 0; i + 2 < parts.length; i++) {
+            if ("ws".equals(parts[i])) {
+                return new SessionContext(parts[i + 1], URLDecoder.decode(parts[i + 2], StandardCharsets.UTF_8), false);
+            }
+        }
+        if (parts.length >= 2 && "spectate".equals(parts[parts.length - 2])) {
+            return new SessionContext(parts[parts.length - 1], null, true);
+        }
+        return null;
+    }
+
+    /** Stores the context before the connection is established; the handler rejects connections without one. */
+    public static class Interceptor implements HandshakeInterceptor {
+        @Override
+        public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                       WebSocketHandler wsHandler, Map<String, Object> attributes) {
+            SessionContext context = fromUri(request.getURI());
+            if (context != null) {
+                attributes.put(ATTRIBUTE, context);
+            }
+            return true;
+        }
+
+        @Override
+        public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Exception exception) {
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.secrethitler.websocket;
+
+import com.secrethitler.models.Game;
+import com.secrethitler.models.GameStateView;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connections watching a game through /spectate/{gameId}.
+ *
+ * Spectators are not players: they are kept here rather than in the game or in
+ * WebSocketManager, in a map per game keyed by session id, so joining and leaving never
+ * copy the other spectators and broadcasts iterate the map as it is. They all get the
+ * same public game_state, the view of a player who is not seated, so it is built once
+ * per state version and the one message, with its encoded frames, is shared by every
+ * spectator of the game.
+ */
+@Component
+public class SpectatorManager {
+
+    /** One connection watching a game. */
+    public record Spectator(WebSocketSession session) {
+    }
+
+    /** The public state of one version of a game. */
+    private record PublicState(Game game, long version, Outbox.Message message) {
+    }
+
+    // Maps game_id -> session_id -> spectator; a game without spectators has no entry
+    private final Map<String, Map<String, Spectator>> spectators = new ConcurrentHashMap<>();
+    // Maps game_id -> its last public state, only touched on the game's command queue
+    private final Map<String, PublicState> publicStates = new ConcurrentHashMap<>();
+    private final LongAdder connected = new LongAdder();
+    private final LongAdder projections = new LongAdder();
+
+    public void join(String gameId, WebSocketSession session) {
+        spectators.compute(gameId, (id, current) -> {
+            Map<String, Spectator> watching = current != null ? current : new ConcurrentHashMap<>();
+            watching.put(session.getId(), new Spectator(session));
+            return watching;
+        });
+        connected.increment();
+    }
+
+    public void leave(String gameId, WebSocketSession session) {
+        boolean[] removed = new boolean[1];
+        spectators.computeIfPresent(gameId, (id, watching) -> {
+            Spectator spectator = watching.get(session.getId());
+            if (spectator != null && spectator.session() == session) {
+                watching.remove(session.getId());
+                removed[0] = true;
+            }
+            if (watching.isEmpty()) {
+                publicStates.remove(gameId);
+                return null;
+            }
+            return watching;
+        });
+        if (removed[0]) {
+            connected.decrement();
+        }
+    }
+
+    /** The game's spectators, without copying; empty if nobody is watching. */
+    public Collection<Spectator> getSpectators(String gameId) {
+        Map<String, Spectator> watching = spectators.get(gameId);
+        return watching != null ? watching.values() : Set.of();
+    }
+
+    /**
+     * The game_state every spectator is sent, reused until the game's state version
+     * moves on. Must be called on the game's command queue.
+     */
+    Outbox.Message publicState(Game game) {
+        long version = game.getStateVersion();
+        PublicState current = publicStates.get(game.getGameId());
+        if (current == null || current.game() != game || current.version() != version) {
+            current = new PublicState(game, version, new Outbox.Message("game_state",
+                    new GameStateView(game, null), WebSocketSender.Kind.STATE));
+            publicStates.put(game.getGameId(), current);
+            projections.increment();
+        }
+        return current.message();
+    }
+
+    /** Forgets the spectators of a game that is being dropped and returns the sessions to close. */
+    public List<WebSocketSession> removeGame(String gameId) {
+        Map<String, Spectator> watching = spectators.remove(gameId);
+        publicStates.remove(gameId);
+        List<WebSocketSession> sessions = new ArrayList<>();
+        if (watching != null) {
+            for (Spectator spectator : watching.values()) {
+                sessions.add(spectator.session());
+            }
+            connected.add(-sessions.size());
+        }
+        return sessions;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("spectators", connected.sum());
+        stats.put("public_state_projections", projections.sum());
+        return stats;
+    }
+}
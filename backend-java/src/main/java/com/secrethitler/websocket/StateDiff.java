@@ -0,0 +1,110 @@
+package com.secrethitler.websocket;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Computes JSON-Patch (RFC 6902) style operations between two projected game states.
+ * Only "add", "remove" and "replace" are produced. Maps are diffed key by key, lists
+ * element by element when their length is unchanged, and appends (including a
+ * sliding window that drops from the front, like a capped log) become
+ * "remove /0" + "add /-" pairs instead of a full replace.
+ */
+public class StateDiff {
+    // Largest front-trim we look for before falling back to replacing a whole list
+    private static final int MAX_SHIFT = 4;
+
+    public static List<Map<String, Object>> diff(Map<String, Object> before, Map<String, Object> after) {
+        List<Map<String, Object>> ops = new ArrayList<>();
+        diffValue("", before, after, ops);
+        return ops;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void diffValue(String path, Object before, Object after, List<Map<String, Object>> ops) {
+        if (before == after || Objects.equals(before, after)) {
+            return;
+        }
+        if (before instanceof Map && after instanceof Map) {
+            diffMap(path, (Map<String, Object>) before, (Map<String, Object>) after, ops);
+        } else if (before instanceof List && after instanceof List) {
+            diffList(path, (List<Object>) before, (List<Object>) after, ops);
+        } else {
+            ops.add(op("replace", path, after));
+        }
+    }
+
+    private static void diffMap(String path, Map<String, Object> before, Map<String, Object> after,
+                                List<Map<String, Object>> ops) {
+        for (String key : before.keySet()) {
+            if (!after.containsKey(key)) {
+                ops.add(op("remove", path + "/" + escape(key), null));
+            }
+        }
+        for (Map.Entry<String, Object> entry : after.entrySet()) {
+            String childPath = path + "/" + escape(entry.getKey());
+            if (!before.containsKey(entry.getKey())) {
+                ops.add(op("add", childPath, entry.getValue()));
+            } else {
+                diffValue(childPath, before.get(entry.getKey()), entry.getValue(), ops);
+            }
+        }
+    }
+
+    private static void diffList(String path, List<Object> before, List<Object> after,
+                                 List<Map<String, Object>> ops) {
+        int shift = findShift(before, after);
+        if (shift >= 0) {
+            for (int i = 0; i < shift; i++) {
+                ops.add(op("remove", path + "/0", null));
+            }
+            for (int i = before.size() - shift; i < after.size(); i++) {
+                ops.add(op("add", path + "/-", after.get(i)));
+            }
+        } else if (before.size() == after.size()) {
+            for (int i = 0; i < after.size(); i++) {
+                diffValue(path + "/" + i, before.get(i), after.get(i), ops);
+            }
+        } else {
+            ops.add(op("replace", path, after));
+        }
+    }
+
+    /**
+     * Returns how many elements were trimmed from the front of before if after is
+     * before minus that prefix plus appended elements, or -1 if it is not.
+     */
+    private static int findShift(List<Object> before, List<Object> after) {
+        for (int shift = 0; shift <= Math.min(MAX_SHIFT, before.size()); shift++) {
+            int kept = before.size() - shift;
+            if (kept > after.size() || (shift > 0 && kept == 0)) {
+                continue;
+            }
+            if (before.subList(shift, before.size()).equals(after.subList(0, kept))) {
+                return shift;
+            }
+        }
+        return -1;
+    }
+
+    private static Map<String, Object> op(String op, String path, Object value) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("op", op);
+        result.put("path", path);
+        if (!"remove".equals(op)) {
+            result.put("value", value);
+        }
+        return result;
+    }
+
+    // JSON Pointer escaping (RFC 6901); keys include player names
+    private static String escape(String key) {
+        if (key.indexOf('~') < 0 && key.indexOf('/') < 0) {
+            return key;
+        }
+        return key.replace("~", "~0").replace("/", "~1");
+    }
+}
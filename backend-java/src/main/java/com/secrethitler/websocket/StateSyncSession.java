@@ -0,0 +1,64 @@
+package com.secrethitler.websocket;
+
+import java.util.Map;
+
+/**
+ * Per-connection bookkeeping for clients that opted into game_state_delta updates.
+ * Stored in the WebSocketSession attributes, so it lives and dies with the connection.
+ *
+ * Deltas are always relative to the last state sent on this connection; the
+ * transport is ordered, so a client that applied every frame is exactly there.
+ * A full snapshot is sent instead when nothing has been sent yet, when the
+ * client reported a version we never sent (a gap), or when too many deltas
+ * have gone unacknowledged.
+ */
+public class StateSyncSession {
+    public static final String ATTRIBUTE = "stateSync";
+
+    // Unacknowledged deltas allowed before falling back to a snapshot
+    private static final int MAX_UNACKED = 32;
+
+    private long sentVersion = -1;
+    private Map<String, Object> sentState;
+    private long ackedVersion = -1;
+    private int unacked;
+    private boolean resyncRequired = true;
+
+    public synchronized boolean canSendDelta() {
+        return !resyncRequired && sentState != null && unacked < MAX_UNACKED;
+    }
+
+    public synchronized long getSentVersion() {
+        return sentVersion;
+    }
+
+    public synchronized Map<String, Object> getSentState() {
+        return sentState;
+    }
+
+    public synchronized void recordSnapshot(long version, Map<String, Object> state) {
+        sentVersion = version;
+        sentState = state;
+        unacked = 0;
+        resyncRequired = false;
+    }
+
+    public synchronized void recordDelta(long version, Map<String, Object> state) {
+        sentVersion = version;
+        sentState = state;
+        unacked++;
+    }
+
+    /** Returns false if the client acknowledged a version that was never sent. */
+    public synchronized boolean acknowledge(long version) {
+        if (version > sentVersion || version < ackedVersion) {
+            resyncRequired = true;
+            return false;
+        }
+        ackedVersion = version;
+        if (version == sentVersion) {
+            unacked = 0;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,37 @@
+package com.secrethitler.websocket;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, kept as a single timestamp (the generic cell rate algorithm).
+ *
+ * Instead of a token count the bucket stores the time at which it would be full again
+ * if nothing else arrived. Taking a token pushes that time one interval further; a
+ * request is refused when the time would move more than a full bucket ahead of now.
+ * That is one CAS per accepted request and a read per refused one.
+ */
+final class TokenBucket {
+    private final long intervalNanos;
+    private final long capacityNanos;
+    private final AtomicLong fullAt;
+
+    TokenBucket(double perSecond, int burst) {
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / perSecond));
+        this.capacityNanos = intervalNanos * Math.max(1, burst);
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    boolean tryAcquire(long now) {
+        while (true) {
+            long current = fullAt.get();
+            // nanoTime values are only compared by difference
+            long next = (current - now < 0 ? now : current) + intervalNanos;
+            if (next - now > capacityNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+}
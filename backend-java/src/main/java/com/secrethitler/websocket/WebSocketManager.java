@@ -9,51 +9,68 @@ import org.springframework.web.socket.WebSocketSession;
 
 @Component
 public class WebSocketManager {
-    // Maps game_id -> {player_name -> session}
-    private final Map<String, Map<String, WebSocketSession>> activeConnections = new ConcurrentHashMap<>();
+    // Maps game_id -> its connections; a game without connections has no group
+    private final Map<String, BroadcastGroup> activeConnections = new ConcurrentHashMap<>();
 
     public void connect(WebSocketSession session, String gameId, String playerName) {
-        activeConnections.computeIfAbsent(gameId, k -> new ConcurrentHashMap<>()).put(playerName, session);
+        activeConnections.compute(gameId, (id, group) -> {
+            BroadcastGroup connections = group != null ? group : new BroadcastGroup();
+            connections.put(playerName, session);
+            return connections;
+        });
     }
 
-    public void disconnect(String gameId, String playerName) {
-        Map<String, WebSocketSession> gameConnections = activeConnections.get(gameId);
-        if (gameConnections != null) {
-            gameConnections.remove(playerName);
-            if (gameConnections.isEmpty()) {
-                activeConnections.remove(gameId);
-            }
-        }
+    /** Removes the player's connection only if it is still this session, so a quick reconnect survives. */
+    public void disconnect(String gameId, String playerName, WebSocketSession session) {
+        activeConnections.computeIfPresent(gameId, (id, group) -> {
+            group.remove(playerName, session);
+            return group.isEmpty() ? null : group;
+        });
     }
 
     public WebSocketSession getSession(String gameId, String playerName) {
-        Map<String, WebSocketSession> gameConnections = activeConnections.get(gameId);
-        if (gameConnections != null) {
-            return gameConnections.get(playerName);
+        BroadcastGroup group = activeConnections.get(gameId);
+        if (group != null) {
+            return group.session(playerName);
         }
         return null;
     }
 
+    /**
+     * The game's connections for a broadcast to iterate. Returns the group's current
+     * array, without copying; empty if nobody is connected.
+     */
+    public BroadcastGroup.Member[] getMembers(String gameId) {
+        BroadcastGroup group = activeConnections.get(gameId);
+        return group != null ? group.members() : BroadcastGroup.NONE;
+    }
+
     public List<String> getConnectedPlayers(String gameId) {
-        Map<String, WebSocketSession> gameConnections = activeConnections.get(gameId);
-        if (gameConnections != null) {
-            return new ArrayList<>(gameConnections.keySet());
+        List<String> players = new ArrayList<>();
+        for (BroadcastGroup.Member member : getMembers(gameId)) {
+            players.add(member.playerName());
         }
-        return new ArrayList<>();
+        return players;
     }
 
     public boolean isConnected(String gameId, String playerName) {
-        Map<String, WebSocketSession> gameConnections = activeConnections.get(gameId);
-        return gameConnections != null && gameConnections.containsKey(playerName);
+        return getSession(gameId, playerName) != null;
     }
 
-    public List<WebSocketSession> getAllSessions(String gameId) {
-        Map<String, WebSocketSession> gameConnections = activeConnections.get(gameId);
-        if (gameConnections != null) {
-            return new ArrayList<>(gameConnections.values());
+    public boolean hasConnections(String gameId) {
+        BroadcastGroup group = activeConnections.get(gameId);
+        return group != null && !group.isEmpty();
+    }
+
+    /** Forgets every connection of a game that is being dropped and returns the sessions to close. */
+    public List<WebSocketSession> removeGame(String gameId) {
+        BroadcastGroup group = activeConnections.remove(gameId);
+        List<WebSocketSession> sessions = new ArrayList<>();
+        if (group != null) {
+            for (BroadcastGroup.Member member : group.members()) {
+                sessions.add(member.session());
+            }
         }
-        return new ArrayList<>();
+        return sessions;
     }
 }
-
-
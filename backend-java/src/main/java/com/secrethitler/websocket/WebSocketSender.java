@@ -0,0 +1,261 @@
+package com.secrethitler.websocket;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends frames to clients without making the game wait for them.
+ *
+ * Every connection gets an OutboundQueue, stored in its WebSocketSession attributes,
+ * which is drained on the outboundSendPool; the game's command queue only appends to
+ * it. A client that stops reading therefore only backs up its own queue, and once that
+ * holds more than app.websocket.send-buffer-limit characters (bytes for binary frames),
+ * or a single write has been stuck longer than app.websocket.send-time-limit-ms, the
+ * connection is closed and the client reconnects to a fresh snapshot. Stuck writes are
+ * also swept for periodically, so a client of a quiet game is not kept forever.
+ *
+ * Connections that negotiated permessage-deflate are deflated by Tomcat inside
+ * sendMessage, so the send CPU per frame is kept apart for compressed and plain
+ * connections (platform send threads only; virtual threads report no CPU time).
+ * Tomcat does not report how large a deflated frame came out, so there is no runtime
+ * compression ratio: the payload bytes handed to compressed connections are counted
+ * instead, to be set against the bytes the host actually sent.
+ */
+@Component
+public class WebSocketSender {
+    public static final String ATTRIBUTE = "outbound";
+
+    private static final CloseStatus TOO_SLOW = CloseStatus.SESSION_NOT_RELIABLE.withReason("Client too slow");
+    private static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    /** What a frame is, as far as coalescing is concerned. */
+    public enum Kind {
+        /** Delivered as sent. */
+        MESSAGE,
+        /** Full game_state: replaces any state or delta frame still waiting. */
+        STATE,
+        /** game_state_delta: relative to the frame before it, so only a full state may replace it. */
+        DELTA
+    }
+
+    private final ExecutorService sendPool;
+    private final long bufferLimit;
+    private final long timeLimitNanos;
+    // Queues of open connections, for the stuck-write sweep
+    private final Set<OutboundQueue> queues = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService watchdog;
+
+    private final LongAdder coalescedStateFrames = new LongAdder();
+    private final LongAdder slowConsumerDisconnects = new LongAdder();
+    private final LongAdder failedSends = new LongAdder();
+    private final LongAdder compressedConnections = new LongAdder();
+    private final LongAdder batchFrames = new LongAdder();
+    private final LongAdder batchedMessages = new LongAdder();
+    private final SendCost compressedSends = new SendCost();
+    private final SendCost plainSends = new SendCost();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    /** Frames written, their payload bytes before compression and the send-thread CPU time they took. */
+    private static final class SendCost {
+        final LongAdder frames = new LongAdder();
+        final LongAdder payloadBytes = new LongAdder();
+        final LongAdder timedFrames = new LongAdder();
+        final LongAdder cpuNanos = new LongAdder();
+
+        long cpuNanosPerFrame() {
+            long timed = timedFrames.sum();
+            return timed == 0 ? 0 : cpuNanos.sum() / timed;
+        }
+    }
+
+    public WebSocketSender(@Qualifier("outboundSendPool") ExecutorService sendPool,
+                           @Value("${app.websocket.send-buffer-limit:524288}") long bufferLimit,
+                           @Value("${app.websocket.send-time-limit-ms:10000}") long timeLimitMs) {
+        this.sendPool = sendPool;
+        this.bufferLimit = bufferLimit;
+        this.timeLimitNanos = TimeUnit.MILLISECONDS.toNanos(timeLimitMs);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "send-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Sweeps for stuck writes at least once per time limit, and at most once a second. */
+    @PostConstruct
+    public void start() {
+        long intervalNanos = Math.max(1, Math.min(timeLimitNanos, TimeUnit.SECONDS.toNanos(1)));
+        watchdog.scheduleWithFixedDelay(() -> {
+            try {
+                closeStuckWrites();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Closes every connection whose current write has been stuck longer than the time limit. */
+    public void closeStuckWrites() {
+        long now = System.nanoTime();
+        for (OutboundQueue queue : queues) {
+            queue.closeIfStuck(now);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+    }
+
+    /** Gives a new connection its queue; called before anything is sent to it. */
+    public void register(WebSocketSession session) {
+        queue(session);
+    }
+
+    /** Stops sending to a closed connection and frees whatever is still waiting. */
+    public void unregister(WebSocketSession session) {
+        if (session.getAttributes().get(ATTRIBUTE) instanceof OutboundQueue queue) {
+            queue.close();
+            queues.remove(queue);
+            if (queue.isCompressed()) {
+                compressedConnections.decrement();
+            }
+        }
+    }
+
+    public void send(WebSocketSession session, WebSocketMessage<?> message, Kind kind) {
+        queue(session).enqueue(message, kind);
+    }
+
+    /** Whether a state or delta frame is still waiting to go out on this connection. */
+    public boolean hasPendingState(WebSocketSession session) {
+        return session.getAttributes().get(ATTRIBUTE) instanceof OutboundQueue queue && queue.hasPendingState();
+    }
+
+    private OutboundQueue queue(WebSocketSession session) {
+        if (session.getAttributes().get(ATTRIBUTE) instanceof OutboundQueue queue) {
+            return queue;
+        }
+        return (OutboundQueue) session.getAttributes()
+                .computeIfAbsent(ATTRIBUTE, key -> newQueue(session));
+    }
+
+    private OutboundQueue newQueue(WebSocketSession session) {
+        boolean compressed = session.getExtensions().stream()
+                .anyMatch(extension -> PERMESSAGE_DEFLATE.equals(extension.getName()));
+        if (compressed) {
+            compressedConnections.increment();
+        }
+        OutboundQueue queue = new OutboundQueue(session, this, compressed);
+        queues.add(queue);
+        return queue;
+    }
+
+    long getBufferLimit() {
+        return bufferLimit;
+    }
+
+    long getTimeLimitNanos() {
+        return timeLimitNanos;
+    }
+
+    void drain(OutboundQueue queue) {
+        sendPool.execute(queue);
+    }
+
+    void stateFrameCoalesced() {
+        coalescedStateFrames.increment();
+    }
+
+    void sendFailed() {
+        failedSends.increment();
+    }
+
+    void messagesBatched(int count) {
+        batchFrames.increment();
+        batchedMessages.add(count);
+    }
+
+    /** CPU time of the calling thread, or -1 where the JVM cannot measure it. */
+    long threadCpuTime() {
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : -1;
+    }
+
+    void frameSent(boolean compressed, long cpuStart, WebSocketMessage<?> message) {
+        SendCost cost = compressed ? compressedSends : plainSends;
+        cost.frames.increment();
+        cost.payloadBytes.add(payloadBytes(message));
+        long cpuEnd = cpuStart >= 0 ? threadCpuTime() : -1;
+        if (cpuEnd >= 0) {
+            cost.timedFrames.increment();
+            cost.cpuNanos.add(cpuEnd - cpuStart);
+        }
+    }
+
+    /** Size of the frame's payload as sent before compression: UTF-8 for text frames. */
+    private static long payloadBytes(WebSocketMessage<?> message) {
+        if (!(message instanceof TextMessage text)) {
+            return message.getPayloadLength();
+        }
+        String payload = text.getPayload();
+        long bytes = payload.length();
+        for (int i = 0; i < payload.length(); i++) {
+            char c = payload.charAt(i);
+            if (c >= 0x800) {
+                // Three bytes, or four for a surrogate pair, which is two chars
+                bytes += Character.isSurrogate(c) ? 1 : 2;
+            } else if (c >= 0x80) {
+                bytes++;
+            }
+        }
+        return bytes;
+    }
+
+    /** Closes on the send pool: closing writes a close frame, which may block behind the stuck write. */
+    void disconnectSlowConsumer(WebSocketSession session) {
+        slowConsumerDisconnects.increment();
+        sendPool.execute(() -> {
+            try {
+                session.close(TOO_SLOW);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("coalesced_state_frames", coalescedStateFrames.sum());
+        stats.put("slow_consumer_disconnects", slowConsumerDisconnects.sum());
+        stats.put("failed_sends", failedSends.sum());
+        stats.put("batch_frames", batchFrames.sum());
+        stats.put("batched_messages", batchedMessages.sum());
+        stats.put("compressed_connections", compressedConnections.sum());
+        stats.put("compressed_frames_sent", compressedSends.frames.sum());
+        stats.put("compressed_payload_bytes", compressedSends.payloadBytes.sum());
+        stats.put("compressed_send_cpu_ns_per_frame", compressedSends.cpuNanosPerFrame());
+        stats.put("plain_frames_sent", plainSends.frames.sum());
+        stats.put("plain_payload_bytes", plainSends.payloadBytes.sum());
+        stats.put("plain_send_cpu_ns_per_frame", plainSends.cpuNanosPerFrame());
+        return stats;
+    }
+}
@@ -0,0 +1,32 @@
+package com.secrethitler.websocket;
+
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+
+/**
+ * Encoding of the frames on one connection, chosen by WebSocket subprotocol.
+ *
+ * A client that lists "secret-hitler.cbor" in Sec-WebSocket-Protocol gets every
+ * message as a binary CBOR frame with the same {type, payload} structure and may send
+ * its actions as CBOR too. Everyone else gets JSON text frames, as before.
+ */
+public enum WireFormat {
+    JSON(null),
+    CBOR("secret-hitler.cbor");
+
+    private final String subprotocol;
+
+    WireFormat(String subprotocol) {
+        this.subprotocol = subprotocol;
+    }
+
+    /** Subprotocols offered during the handshake, in order of preference. */
+    public static List<String> subprotocols() {
+        return List.of(CBOR.subprotocol);
+    }
+
+    public static WireFormat of(WebSocketSession session) {
+        return CBOR.subprotocol.equals(session.getAcceptedProtocol()) ? CBOR : JSON;
+    }
+}
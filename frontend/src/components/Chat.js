@@ -13,44 +13,16 @@ import {
 import SendIcon from '@mui/icons-material/Send';
 import wsService from '../services/websocket';
 
-const Chat = ({ gameState, playerName }) => {
+// Messages come from useChat in the parent; Chat only renders them and sends new ones
+const Chat = ({ gameState, playerName, messages, hasMore, onLoadEarlier }) => {
   const [message, setMessage] = useState('');
-  const [messages, setMessages] = useState([]);
   const messagesEndRef = useRef(null);
+  const lastSeq = messages.length > 0 ? messages[messages.length - 1].seq : null;
 
   useEffect(() => {
-    // Load chat history from game state
-    if (gameState && gameState.chat_history) {
-      setMessages(gameState.chat_history.map(msg => ({
-        sender: msg.sender,
-        message: msg.message,
-        timestamp: msg.timestamp,
-        type: msg.type || 'PLAYER_MESSAGE'
-      })));
-    }
-  }, [gameState]);
-
-  useEffect(() => {
-    const handleChatMessage = (payload) => {
-      setMessages(prev => [...prev, {
-        sender: payload.sender,
-        message: payload.message,
-        timestamp: payload.timestamp,
-        type: payload.type || 'PLAYER_MESSAGE'
-      }]);
-    };
-
-    wsService.on('chat_message', handleChatMessage);
-
-    return () => {
-      wsService.off('chat_message', handleChatMessage);
-    };
-  }, []);
-
-  useEffect(() => {
-    // Auto-scroll to bottom when new messages arrive
+    // Auto-scroll to bottom when a new message arrives, not when older ones are loaded
     messagesEndRef.current?.scrollIntoView({ behavior: 'smooth' });
-  }, [messages]);
+  }, [lastSeq]);
 
   const handleSend = () => {
     if (message.trim()) {
@@ -82,9 +54,14 @@ const Chat = ({ gameState, playerName }) => {
       </Box>
       
       <Box sx={{ flexGrow: 1, overflow: 'auto', p: 1 }}>
+        {hasMore && (
+          <Box sx={{ textAlign: 'center' }}>
+            <Button size="small" onClick={onLoadEarlier}>Load earlier messages</Button>
+          </Box>
+        )}
         <List sx={{ py: 0 }}>
-          {messages.map((msg, index) => (
-            <ListItem key={index} sx={{ py: 0.5 }}>
+          {messages.map(msg => (
+            <ListItem key={msg.seq} sx={{ py: 0.5 }}>
               <Box sx={{ width: '100%' }}>
                 {msg.type === 'SYSTEM_MESSAGE' ? (
                   <Box sx={{ 
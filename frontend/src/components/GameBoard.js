@@ -16,6 +16,7 @@ import {
 } from '@mui/material';
 import { blue, red } from '@mui/material/colors';
 import { Phase, isGameOver, getFascistPlayers } from '../utils/gameState';
+import { useChat } from '../utils/chat';
 import Chat from './Chat';
 import wsService from '../services/websocket';
 
@@ -23,6 +24,8 @@ const GameBoard = ({ gameState, playerName }) => {
   const currentPlayer = gameState.players.find(p => p.name === playerName);
   const fascistAllies = getFascistPlayers(gameState, playerName);
   const gameEnded = isGameOver(gameState);
+  const chat = useChat();
+  const systemMessages = chat.messages.filter(msg => msg.type === 'SYSTEM_MESSAGE');
 
   const handleReady = () => {
     wsService.send('ready', {});
@@ -334,13 +337,12 @@ const GameBoard = ({ gameState, playerName }) => {
       )}
 
       {/* System Messages in Chat */}
-      {gameState.chat_history && gameState.chat_history.some(msg => msg.type === 'SYSTEM_MESSAGE') && (
+      {systemMessages.length > 0 && (
         <Box sx={{ mt: 2 }}>
-          {gameState.chat_history
-            .filter(msg => msg.type === 'SYSTEM_MESSAGE')
+          {systemMessages
             .slice(-5)
-            .map((msg, idx) => (
-              <Typography key={idx} variant="body2" color="text.secondary" sx={{ fontStyle: 'italic' }}>
+            .map(msg => (
+              <Typography key={msg.seq} variant="body2" color="text.secondary" sx={{ fontStyle: 'italic' }}>
                 {msg.message}
               </Typography>
             ))}
@@ -349,7 +351,13 @@ const GameBoard = ({ gameState, playerName }) => {
         </Grid>
         <Grid item xs={12} md={4}>
           <Box sx={{ position: 'sticky', top: 20 }}>
-            <Chat gameState={gameState} playerName={playerName} />
+            <Chat
+              gameState={gameState}
+              playerName={playerName}
+              messages={chat.messages}
+              hasMore={chat.hasMore}
+              onLoadEarlier={chat.loadEarlier}
+            />
           </Box>
         </Grid>
       </Grid>
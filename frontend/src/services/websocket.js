@@ -63,7 +63,13 @@ class WebSocketService {
 
   handleMessage(message) {
     const { type, payload } = message;
-    
+
+    // Everything one action produced, in order
+    if (type === 'batch') {
+      payload.forEach(entry => this.handleMessage(entry));
+      return;
+    }
+
     // Call all handlers for this message type
     if (this.messageHandlers.has(type)) {
       this.messageHandlers.get(type).forEach(handler => {
@@ -0,0 +1,63 @@
+import { useState, useEffect, useCallback } from 'react';
+import wsService from '../services/websocket';
+
+const PAGE_SIZE = 50;
+
+// Merges chat messages by sequence number, keeping them in order without duplicates
+function mergeMessages(current, incoming) {
+  const bySeq = new Map();
+  current.forEach(msg => bySeq.set(msg.seq, msg));
+  incoming.forEach(msg => bySeq.set(msg.seq, msg));
+  return Array.from(bySeq.values()).sort((a, b) => a.seq - b.seq);
+}
+
+/**
+ * Chat of the current game. Chat is not part of game_state: new messages arrive as
+ * chat_message events and older ones are requested in pages with chat_history,
+ * which is also how the chat is loaded after (re)connecting.
+ */
+export function useChat() {
+  const [chat, setChat] = useState({ messages: [], hasMore: false });
+
+  useEffect(() => {
+    const requestLatest = () => wsService.send('chat_history', { limit: PAGE_SIZE });
+
+    const handleChatMessage = (payload) => {
+      setChat(prev => ({ ...prev, messages: mergeMessages(prev.messages, [payload]) }));
+    };
+
+    const handleChatHistory = (payload) => {
+      setChat(prev => {
+        // Only a page reaching further back than what we hold says whether there is more
+        const older = prev.messages.length === 0 || payload.messages.length === 0 ||
+          payload.messages[0].seq < prev.messages[0].seq;
+        return {
+          messages: mergeMessages(prev.messages, payload.messages),
+          hasMore: older ? payload.has_more : prev.hasMore
+        };
+      });
+    };
+
+    wsService.on('chat_message', handleChatMessage);
+    wsService.on('chat_history', handleChatHistory);
+    wsService.addEventListener('connected', requestLatest);
+    if (wsService.isConnected()) {
+      requestLatest();
+    }
+
+    return () => {
+      wsService.off('chat_message', handleChatMessage);
+      wsService.off('chat_history', handleChatHistory);
+      wsService.removeEventListener('connected', requestLatest);
+    };
+  }, []);
+
+  const oldestSeq = chat.messages.length > 0 ? chat.messages[0].seq : null;
+  const loadEarlier = useCallback(() => {
+    if (oldestSeq !== null) {
+      wsService.send('chat_history', { before: oldestSeq, limit: PAGE_SIZE });
+    }
+  }, [oldestSeq]);
+
+  return { messages: chat.messages, hasMore: chat.hasMore, loadEarlier };
+}
@@ -15,7 +15,7 @@ echo Checking Java installation...
 java -version >nul 2>&1
 if errorlevel 1 (
     echo [ERROR] Java is not installed or not in PATH
-    echo Please install Java 17+ from https://adoptium.net/
+    echo Please install Java 21+ from https://adoptium.net/
     pause
     exit /b 1
 )
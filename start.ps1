@@ -15,7 +15,7 @@ Write-Host "Checking Java installation..." -ForegroundColor Yellow
 $javaCheck = & java -version 2>&1
 if ($LASTEXITCODE -ne 0) {
     Write-Host "Error: Java is not installed or not in PATH" -ForegroundColor Red
-    Write-Host "Please install Java 17+ from https://adoptium.net/" -ForegroundColor Red
+    Write-Host "Please install Java 21+ from https://adoptium.net/" -ForegroundColor Red
     Read-Host "Press Enter to exit"
     exit 1
 } else {